@@ -0,0 +1,278 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * CorpusLoader class:
+ * Loads every word file in a directory in parallel using fork/join. Each file is read in
+ * batches of lines, every word is validated to make sure it can be typed with the keys GamePanel accepts,
+ * and the valid words are deduplicated into a shared concurrent set. Once all files are
+ * done the set is merged into a single list that a WordDatabase can be built from.
+ * Timings for each stage and the number of rejected words are printed after loading.
+ */
+public class CorpusLoader {
+    /**
+     * Number of lines read from a file before they are validated and deduplicated.
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * Concurrent set that all the file tasks add their valid words into.
+     */
+    private final Set<String> uniqueWords;
+    /**
+     * Total time spent across all workers reading lines from files in ns.
+     */
+    private final LongAdder readTime;
+    /**
+     * Total time spent across all workers validating words in ns.
+     */
+    private final LongAdder validateTime;
+    /**
+     * Total time spent across all workers adding words to the unique set in ns.
+     */
+    private final LongAdder dedupTime;
+    /**
+     * Number of lines read across all files.
+     */
+    private final LongAdder linesRead;
+    /**
+     * Number of lines that were empty after trimming.
+     */
+    private final LongAdder emptyRejected;
+    /**
+     * Number of words containing characters that can not be typed.
+     */
+    private final LongAdder untypeableRejected;
+    /**
+     * Number of words that were already added from this or another file.
+     */
+    private final LongAdder duplicateRejected;
+    /**
+     * Number of files that could not be read.
+     */
+    private final LongAdder filesFailed;
+
+    /**
+     * Prepares an empty loader ready to load a directory.
+     */
+    public CorpusLoader() {
+        uniqueWords = ConcurrentHashMap.newKeySet();
+        readTime = new LongAdder();
+        validateTime = new LongAdder();
+        dedupTime = new LongAdder();
+        linesRead = new LongAdder();
+        emptyRejected = new LongAdder();
+        untypeableRejected = new LongAdder();
+        duplicateRejected = new LongAdder();
+        filesFailed = new LongAdder();
+    }
+
+    /**
+     * Loads all the files in the directory in parallel and merges them into one list of
+     * unique words. Words are stored in lower case. If the directory can not be listed or
+     * no valid words are found the list will only contain "FILEREADERROR".
+     *
+     * @param directoryName Directory containing the word files to load.
+     * @return A list of all the unique valid words.
+     */
+    public List<String> loadDirectory(String directoryName) {
+        long startTime = System.nanoTime();
+        File[] files = new File(directoryName).listFiles(File::isFile);
+        if(files == null) {
+            System.out.println("ERROR");
+            files = new File[0];
+        }
+        Arrays.sort(files);
+        // A dedicated pool so blocking file reads do not hold up other users of the common pool
+        ForkJoinPool pool = new ForkJoinPool();
+        int parallelism = pool.getParallelism();
+        try {
+            pool.invoke(new LoadFilesTask(files, 0, files.length));
+        } finally {
+            pool.shutdown();
+        }
+        long loadEndTime = System.nanoTime();
+
+        List<String> result = new ArrayList<>(uniqueWords);
+        if(result.isEmpty()) {
+            result.add("FILEREADERROR");
+        }
+        long mergeEndTime = System.nanoTime();
+
+        printReport(files.length, parallelism, loadEndTime - startTime, mergeEndTime - loadEndTime, result.size());
+        return result;
+    }
+
+    /**
+     * Tests if every character in the word is a letter that handleInput in GamePanel
+     * will accept once the word has been converted to upper case.
+     *
+     * @param word Word to test.
+     * @return True if the word can be completed by the player.
+     */
+    public static boolean isTypeable(String word) {
+        if(word.isEmpty()) {
+            return false;
+        }
+        for(int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads, validates and deduplicates a single file. The file is processed in batches of
+     * BATCH_SIZE lines so only one batch of a file is held in memory at a time, and the time
+     * for each stage is added up across the batches.
+     *
+     * @param file File to load.
+     */
+    private void loadFile(File file) {
+        String[] batch = new String[BATCH_SIZE];
+        long fileReadTime = 0;
+        long fileValidateTime = 0;
+        long fileDedupTime = 0;
+        int lines = 0;
+        int empty = 0;
+        int untypeable = 0;
+        int duplicates = 0;
+        try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int batchLength;
+            do {
+                long stageStart = System.nanoTime();
+                batchLength = 0;
+                String line;
+                while(batchLength < BATCH_SIZE && (line = reader.readLine()) != null) {
+                    batch[batchLength++] = line;
+                }
+                long stageEnd = System.nanoTime();
+                fileReadTime += stageEnd - stageStart;
+                lines += batchLength;
+
+                // Valid words are moved to the front of the batch
+                stageStart = stageEnd;
+                int validLength = 0;
+                for(int i = 0; i < batchLength; i++) {
+                    String word = batch[i].trim();
+                    if(word.isEmpty()) {
+                        empty++;
+                    } else if(!isTypeable(word)) {
+                        untypeable++;
+                    } else {
+                        batch[validLength++] = word.toLowerCase(Locale.ROOT);
+                    }
+                }
+                stageEnd = System.nanoTime();
+                fileValidateTime += stageEnd - stageStart;
+
+                stageStart = stageEnd;
+                for(int i = 0; i < validLength; i++) {
+                    if(!uniqueWords.add(batch[i])) {
+                        duplicates++;
+                    }
+                }
+                fileDedupTime += System.nanoTime() - stageStart;
+            } while(batchLength == BATCH_SIZE);
+        } catch(IOException e) {
+            System.out.println("ERROR: " + file.getName());
+            filesFailed.increment();
+        }
+        readTime.add(fileReadTime);
+        validateTime.add(fileValidateTime);
+        dedupTime.add(fileDedupTime);
+        linesRead.add(lines);
+        emptyRejected.add(empty);
+        untypeableRejected.add(untypeable);
+        duplicateRejected.add(duplicates);
+    }
+
+    /**
+     * Prints the timings for each stage and the number of words rejected for each reason.
+     *
+     * @param fileCount Number of files found in the directory.
+     * @param parallelism Number of threads used to load the files.
+     * @param loadTime Wall clock time for the parallel load in ns.
+     * @param mergeTime Wall clock time for merging the set into a list in ns.
+     * @param wordCount Number of words in the merged list.
+     */
+    private void printReport(int fileCount, int parallelism, long loadTime, long mergeTime, int wordCount) {
+        System.out.printf("Loaded %d files (%d failed) with %d threads%n",
+                fileCount, filesFailed.sum(), parallelism);
+        System.out.printf("  Parallel load: %d ms (read %d ms, validate %d ms, dedup %d ms summed over workers)%n",
+                loadTime / 1000000, readTime.sum() / 1000000, validateTime.sum() / 1000000, dedupTime.sum() / 1000000);
+        System.out.printf("  Merge: %d ms%n", mergeTime / 1000000);
+        System.out.printf("  Lines read: %d, accepted: %d%n", linesRead.sum(), wordCount);
+        System.out.printf("  Rejected: %d empty, %d untypeable, %d duplicate%n",
+                emptyRejected.sum(), untypeableRejected.sum(), duplicateRejected.sum());
+    }
+
+    /**
+     * Fork/join task that splits a range of files in half until only one file
+     * remains, and then loads that file.
+     */
+    private class LoadFilesTask extends RecursiveAction {
+        /**
+         * Version for serialization, which RecursiveAction supports.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All the files being loaded.
+         */
+        private final File[] files;
+        /**
+         * First index in files for this task.
+         */
+        private final int start;
+        /**
+         * Index after the last file for this task.
+         */
+        private final int end;
+
+        /**
+         * Creates a task to load the range of files from start up to but not including end.
+         *
+         * @param files All the files being loaded.
+         * @param start First index in files for this task.
+         * @param end Index after the last file for this task.
+         */
+        private LoadFilesTask(File[] files, int start, int end) {
+            this.files = files;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Loads the file directly if there is only one, otherwise splits the range in half.
+         */
+        @Override
+        protected void compute() {
+            if(end - start <= 1) {
+                if(end > start) {
+                    loadFile(files[start]);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new LoadFilesTask(files, start, middle), new LoadFilesTask(files, middle, end));
+        }
+    }
+}
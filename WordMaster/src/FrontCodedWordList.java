@@ -0,0 +1,413 @@
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * FrontCodedWordList class:
+ * An immutable, sorted and deduplicated list of words stored front-coded in a single byte array.
+ * Words are grouped into blocks of BLOCK_SIZE. The first word of each block (the restart point)
+ * is stored in full, and every following word in the block only stores the number of UTF-8 bytes
+ * it shares with the word before it plus the remaining suffix. Random access by index only has to
+ * decode from the start of the block, so get() is O(BLOCK_SIZE). Words are decoded as bytes into a
+ * reusable buffer and only turned into a String once. The words are sorted by code point, which
+ * matches the order of their UTF-8 bytes, so membership and prefix lookups are a binary search over
+ * the restart points comparing bytes directly.
+ */
+public class FrontCodedWordList extends AbstractList<String> implements RandomAccess {
+    /**
+     * Number of words in each block between restart points.
+     */
+    public static final int BLOCK_SIZE = 16;
+
+    /**
+     * Encoded word data. Each entry is stored as: shared prefix length (varint),
+     * suffix byte length (varint), suffix as UTF-8 bytes.
+     */
+    private final byte[] encoded;
+    /**
+     * Byte offset into encoded for the first word of each block.
+     */
+    private final int[] restartOffsets;
+    /**
+     * Total number of words stored.
+     */
+    private final int size;
+    /**
+     * Buffer each thread decodes words into, sized to fit the longest word.
+     */
+    private final ThreadLocal<byte[]> decodeBuffer;
+
+    /**
+     * Builds the list from a list of words. To avoid holding extra copies of a large word list
+     * the words are sorted in place, so the list passed in is reordered. Duplicates are skipped
+     * while encoding. The list is not needed afterwards and can be discarded.
+     *
+     * @param words Words to store in the list. Sorted in place.
+     */
+    public FrontCodedWordList(List<String> words) {
+        words.sort(FrontCodedWordList::compareCodePoints);
+        int uniqueCount = 0;
+        for(int i = 0; i < words.size(); i++) {
+            if(i == 0 || !words.get(i).equals(words.get(i - 1))) {
+                uniqueCount++;
+            }
+        }
+        size = uniqueCount;
+        restartOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+        ByteBuffer buffer = new ByteBuffer();
+        byte[] previousWord = new byte[0];
+        int maxWordLength = 1;
+        int index = 0;
+        for(int i = 0; i < words.size(); i++) {
+            if(i > 0 && words.get(i).equals(words.get(i - 1))) {
+                continue;
+            }
+            byte[] word = words.get(i).getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            if(index % BLOCK_SIZE == 0) {
+                restartOffsets[index / BLOCK_SIZE] = buffer.length;
+            } else {
+                shared = sharedPrefixLength(previousWord, word);
+            }
+            buffer.writeVarInt(shared);
+            buffer.writeVarInt(word.length - shared);
+            buffer.write(word, shared, word.length - shared);
+            maxWordLength = Math.max(maxWordLength, word.length);
+            previousWord = word;
+            index++;
+        }
+        encoded = buffer.toByteArray();
+        int bufferLength = maxWordLength;
+        decodeBuffer = ThreadLocal.withInitial(() -> new byte[bufferLength]);
+    }
+
+    /**
+     * Gets the word at the specified index by decoding from the nearest restart point.
+     *
+     * @param index Index of the word to get.
+     * @return The word at the index in sorted order.
+     */
+    @Override
+    public String get(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int block = index / BLOCK_SIZE;
+        byte[] word = decodeBuffer.get();
+        int[] cursor = { restartOffsets[block] };
+        int length = 0;
+        for(int i = block * BLOCK_SIZE; i <= index; i++) {
+            length = decodeNext(word, cursor);
+        }
+        return new String(word, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the number of words stored.
+     *
+     * @return Number of unique words.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests if the word exists in the list using the sorted order.
+     *
+     * @param o Object to search for.
+     * @return True if the word is in the list.
+     */
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && indexOf(o) >= 0;
+    }
+
+    /**
+     * Finds the index of the word using a binary search over the restart points
+     * followed by a scan of a single block.
+     *
+     * @param o Object to search for.
+     * @return The index of the word, or -1 if it is not found.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if(!(o instanceof String)) {
+            return -1;
+        }
+        String word = (String) o;
+        int index = lowerBound(word);
+        if(index < size && get(index).equals(word)) {
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Because words are unique the last index is always the same as the first.
+     *
+     * @param o Object to search for.
+     * @return The index of the word, or -1 if it is not found.
+     */
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    /**
+     * Tests if any word in the list starts with the prefix.
+     *
+     * @param prefix Prefix to search for.
+     * @return True if at least one word begins with the prefix.
+     */
+    public boolean hasPrefix(String prefix) {
+        int index = lowerBound(prefix);
+        return index < size && get(index).startsWith(prefix);
+    }
+
+    /**
+     * Gets all the words that start with the prefix. Because the list is sorted
+     * these are a single contiguous range.
+     *
+     * @param prefix Prefix to search for.
+     * @return All words beginning with the prefix in sorted order.
+     */
+    public List<String> getWordsWithPrefix(String prefix) {
+        List<String> result = new ArrayList<>();
+        for(int i = lowerBound(prefix); i < size; i++) {
+            String word = get(i);
+            if(!word.startsWith(prefix)) {
+                break;
+            }
+            result.add(word);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of bytes used by the encoded word data and restart offsets.
+     *
+     * @return Approximate size of the encoded data in bytes.
+     */
+    public int getEncodedSize() {
+        return encoded.length + restartOffsets.length * Integer.BYTES;
+    }
+
+    /**
+     * Finds the first index with a word that is greater than or equal to the key.
+     *
+     * @param key Word to search for.
+     * @return Index of the first word >= key, or size if there is none.
+     */
+    private int lowerBound(String key) {
+        if(size == 0) {
+            return 0;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        // Find the last block that starts at or before the key
+        int low = 0;
+        int high = restartOffsets.length - 1;
+        int block = 0;
+        int[] cursor = new int[1];
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            // The first word of a block is stored in full so it can be compared in place
+            cursor[0] = restartOffsets[mid];
+            readVarInt(cursor);
+            int length = readVarInt(cursor);
+            if(compareBytes(encoded, cursor[0], length, keyBytes) <= 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // Scan through the block decoding each word in turn
+        int index = block * BLOCK_SIZE;
+        int end = Math.min(index + BLOCK_SIZE, size);
+        byte[] word = decodeBuffer.get();
+        cursor[0] = restartOffsets[block];
+        for(; index < end; index++) {
+            int length = decodeNext(word, cursor);
+            if(compareBytes(word, 0, length, keyBytes) >= 0) {
+                return index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decodes the next word into the buffer. The buffer must still hold the previous
+     * word from the same block, because only the suffix after the shared prefix is copied.
+     *
+     * @param buffer Buffer holding the previous word that the next word is decoded into.
+     * @param cursor Single element array holding the current byte offset.
+     * @return Length in bytes of the decoded word.
+     */
+    private int decodeNext(byte[] buffer, int[] cursor) {
+        int shared = readVarInt(cursor);
+        int suffixLength = readVarInt(cursor);
+        System.arraycopy(encoded, cursor[0], buffer, shared, suffixLength);
+        cursor[0] += suffixLength;
+        return shared + suffixLength;
+    }
+
+    /**
+     * Compares a range of UTF-8 bytes against a key as unsigned bytes,
+     * which gives the same order as comparing by code point.
+     *
+     * @param bytes Array holding the word.
+     * @param offset Offset of the word in the array.
+     * @param length Length of the word in bytes.
+     * @param key Key to compare against.
+     * @return Negative, zero, or positive if the word is before, equal to, or after the key.
+     */
+    private static int compareBytes(byte[] bytes, int offset, int length, byte[] key) {
+        int max = Math.min(length, key.length);
+        for(int i = 0; i < max; i++) {
+            int difference = (bytes[offset + i] & 0xFF) - (key[i] & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Compares two words by code point so the order matches their UTF-8 bytes.
+     *
+     * @param a First word.
+     * @param b Second word.
+     * @return Negative, zero, or positive if a is before, equal to, or after b.
+     */
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while(i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if(codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    /**
+     * Reads a variable length int from the encoded data and moves the cursor past it.
+     *
+     * @param cursor Single element array holding the current byte offset.
+     * @return The decoded value.
+     */
+    private int readVarInt(int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = encoded[cursor[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while((current & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Counts the number of bytes at the start of both words that are the same.
+     *
+     * @param a First word as UTF-8 bytes.
+     * @param b Second word as UTF-8 bytes.
+     * @return Length of the common prefix in bytes.
+     */
+    private static int sharedPrefixLength(byte[] a, byte[] b) {
+        int max = Math.min(a.length, b.length);
+        int i = 0;
+        while(i < max && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Simple growable byte array used while encoding.
+     */
+    private static class ByteBuffer {
+        /**
+         * Bytes written so far.
+         */
+        private byte[] bytes = new byte[1024];
+        /**
+         * Number of bytes used in the array.
+         */
+        private int length = 0;
+
+        /**
+         * Writes a variable length int using 7 bits per byte.
+         *
+         * @param value Non-negative value to write.
+         */
+        private void writeVarInt(int value) {
+            while((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        /**
+         * Writes a range of bytes to the end of the buffer.
+         *
+         * @param data Array holding the bytes to write.
+         * @param offset Offset of the first byte to write.
+         * @param count Number of bytes to write.
+         */
+        private void write(byte[] data, int offset, int count) {
+            ensureCapacity(length + count);
+            System.arraycopy(data, offset, bytes, length, count);
+            length += count;
+        }
+
+        /**
+         * Writes a single byte to the end of the buffer.
+         *
+         * @param value Byte to write.
+         */
+        private void writeByte(int value) {
+            ensureCapacity(length + 1);
+            bytes[length++] = (byte) value;
+        }
+
+        /**
+         * Grows the array if it can not hold the required number of bytes.
+         *
+         * @param required Number of bytes that must fit.
+         */
+        private void ensureCapacity(int required) {
+            if(required > bytes.length) {
+                byte[] grown = new byte[Math.max(required, bytes.length * 2)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+
+        /**
+         * Gets a copy of the written bytes trimmed to length.
+         *
+         * @return The written bytes.
+         */
+        private byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, 0, result, 0, length);
+            return result;
+        }
+    }
+}
@@ -32,7 +32,7 @@ public class Game implements KeyListener {
     public Game() {
         JFrame frame = new JFrame("Rhythm Master");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setResizable(false);
+        frame.setResizable(true);
 
         gamePanel = new GamePanel();
         frame.getContentPane().add(gamePanel);
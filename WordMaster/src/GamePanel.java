@@ -6,6 +6,9 @@ import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Word Master
@@ -24,21 +27,60 @@ public class GamePanel extends JPanel implements ActionListener {
     public enum GameState { Starting, Playing, GameOver }
 
     /**
-     * Width of the panel.
+     * Logical width of the panel. Everything is drawn in this coordinate space and scaled to the real size.
      */
     private static final int PANEL_WIDTH = 500;
     /**
-     * Height of the panel.
+     * Logical height of the panel. Everything is drawn in this coordinate space and scaled to the real size.
      */
     private static final int PANEL_HEIGHT = 500;
+    /**
+     * Largest multiple of the logical size the back buffer is drawn at on large displays.
+     */
+    private static final double MAX_RENDER_SCALE = 2.0;
+    /**
+     * Number of upcoming words the word database prepares in the background.
+     */
+    private static final int LOOKAHEAD_DEPTH = 4;
     /**
      * Time between updates in ms.
      */
-    private static final int TIME_INTERVAL = 20;
+    public static final int TIME_INTERVAL = 20;
     /**
      * Font used for most of the text displayed.
      */
     private static final Font font = new Font("Arial", Font.BOLD, 40);
+    /**
+     * File that every completed round is appended to for SessionAnalytics.
+     * Hosted sessions add their own prefix to the name.
+     */
+    private static final String ROUNDS_FILE = "Rounds.dat";
+    /**
+     * Statistics file written by SessionAnalytics used to weight the word selection.
+     */
+    private static final String STATISTICS_FILE = "WordStats.dat";
+    /**
+     * File holding the recording of the highest scoring round, used for the ghost.
+     * Hosted sessions add their own prefix to the name.
+     */
+    private static final String BEST_ROUND_FILE = "BestRound.dat";
+    /**
+     * Longest time in ms to wait for queued rounds to be saved when the application exits.
+     */
+    private static final int ROUND_WRITER_SHUTDOWN_TIMEOUT = 5000;
+    /**
+     * Background writer for saving finished rounds so file access never blocks the game.
+     * A single thread keeps the writes in the order the rounds finished.
+     */
+    private static final ExecutorService roundWriter = createRoundWriter();
+    /**
+     * Smaller font used for the ghost mode option text.
+     */
+    private static final Font optionFont = new Font("Arial", Font.BOLD, 20);
+    /**
+     * Font used for the score and incorrect count.
+     */
+    private static final Font scoreFont = new Font("Arial", Font.BOLD, 30);
 
     /**
      * Database containing a word list that random words can be pulled from.
@@ -54,12 +96,57 @@ public class GamePanel extends JPanel implements ActionListener {
     private ActionTimer timeRemaining;
     /**
      * Timer to keep updates ticking regularly for everything that needs to update on a timer.
+     * Null when the updates are driven by a shared scheduler such as TournamentHost.
      */
     private Timer gameTimer;
+    /**
+     * True if the panel runs its own update timer and can exit the application.
+     */
+    private final boolean standalone;
+    /**
+     * File this panel appends every completed round to.
+     */
+    private final String roundsFile;
+    /**
+     * File this panel saves its best round to.
+     */
+    private final String bestRoundFile;
     /**
      * A list of all the FadingEventTexts that have been triggered from completed words to show changed scores.
      */
     private List<FadingEventText> fadingEventTexts;
+    /**
+     * Cached layouts of the current word and the start and end messages.
+     */
+    private TextLayoutCache textLayoutCache;
+    /**
+     * Scales the logical PANEL_WIDTH x PANEL_HEIGHT frame to the real size of the panel.
+     */
+    private ScaledRenderer scaledRenderer;
+    /**
+     * Recording of the words and keys entered during the current round.
+     */
+    private RoundRecording roundRecording;
+    /**
+     * Time from System.nanoTime() when the current round started.
+     */
+    private long roundStartTime;
+    /**
+     * Ghost that plays back the best recorded round, or null if there is no best round yet.
+     */
+    private GhostPlayer ghost;
+    /**
+     * When true the ghost is raced against and the live game uses the ghost's words.
+     */
+    private boolean ghostMode;
+    /**
+     * The score of the best recorded round.
+     */
+    private int bestScore;
+    /**
+     * Number of words shown so far this round. Used to give the live game the same words as the ghost.
+     */
+    private int wordsShown;
 
     /**
      * The current index in the currentWord that is being entered by the user.
@@ -106,17 +193,47 @@ public class GamePanel extends JPanel implements ActionListener {
 
     /**
      * Prepares the game to be played and initialises it by starting in the Starting game state.
+     * The panel loads its own word list and runs its own update timer.
      */
     public GamePanel() {
+        this(loadWordDatabase(), true, "");
+    }
+
+    /**
+     * Prepares the game to be played with the specified word database and initialises it by
+     * starting in the Starting game state. When standalone is false no update timer is started,
+     * so actionPerformed() must be called every TIME_INTERVAL ms by a shared scheduler, and
+     * pressing escape no longer exits the application. The file prefix keeps the recorded rounds
+     * and best round of each hosted session separate from every other session.
+     *
+     * @param wordDatabase Database to select words from.
+     * @param standalone True if the panel runs its own update timer.
+     * @param filePrefix Prefix added to the rounds and best round file names.
+     */
+    public GamePanel(WordDatabase wordDatabase, boolean standalone, String filePrefix) {
         setBackground(new Color(179, 179, 179));
+        scaledRenderer = new ScaledRenderer(PANEL_WIDTH, PANEL_HEIGHT, MAX_RENDER_SCALE, new Color(62, 47, 28));
         setPreferredSize(new Dimension(PANEL_WIDTH,PANEL_HEIGHT));
 
-        // Word data is taken from: https://github.com/Xethron/Hangman/blob/master/words.txt
-        wordDatabase = new WordDatabase("Words.txt");
-        gameTimer = new Timer(TIME_INTERVAL, this);
+        this.wordDatabase = wordDatabase;
+        this.standalone = standalone;
+        roundsFile = filePrefix + ROUNDS_FILE;
+        bestRoundFile = filePrefix + BEST_ROUND_FILE;
+        wordDatabase.enableLookahead(LOOKAHEAD_DEPTH);
+        RoundRecording bestRound = RoundRecording.loadFromFile(bestRoundFile);
+        if(bestRound != null) {
+            ghost = new GhostPlayer(bestRound);
+            bestScore = GhostPlayer.calculateFinalScore(bestRound);
+        }
+        ghostMode = false;
+        if(standalone) {
+            gameTimer = new Timer(TIME_INTERVAL, this);
+        }
         timeRemaining = new ActionTimer(2*60*1000); // 2 minute timer
         nextWord();
         fadingEventTexts = new ArrayList<>();
+        textLayoutCache = new TextLayoutCache(64, new Color(25, 106, 25), Color.BLACK, Color.RED);
+        textLayoutCache.setFont(font);
         totalScore = 0;
         totalWrongLettersForWord = 0;
         wrongLetters = 0;
@@ -124,19 +241,60 @@ public class GamePanel extends JPanel implements ActionListener {
         wrongString = wrongPrefixString + "0";
         lastCharacterWrong = false;
         gameState = GameState.Starting;
-        gameTimer.start();
+        if(standalone) {
+            gameTimer.start();
+        }
+    }
+
+    /**
+     * Creates the background writer for saving rounds. The thread is a daemon so it never keeps
+     * the application open, and a shutdown hook waits for any queued rounds to finish being
+     * written so System.exit() does not cut a round off part way through.
+     *
+     * @return The executor to save rounds with.
+     */
+    private static ExecutorService createRoundWriter() {
+        ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RoundWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(ROUND_WRITER_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "RoundWriterShutdown"));
+        return writer;
+    }
+
+    /**
+     * Loads the default word list and the word statistics used to weight it.
+     *
+     * @return The loaded word database.
+     */
+    public static WordDatabase loadWordDatabase() {
+        // Word data is taken from: https://github.com/Xethron/Hangman/blob/master/words.txt
+        WordDatabase wordDatabase = new WordDatabase("Words.txt");
+        wordDatabase.loadStatistics(STATISTICS_FILE);
+        return wordDatabase;
     }
 
     /**
      * Handles the word input and transitions between states by pressing space.
+     * Pressing G outside of play toggles racing against the ghost of the best round.
      *
      * @param keyCode The key that was pressed.
      */
     public void handleInput(int keyCode) {
-        if(keyCode == KeyEvent.VK_ESCAPE) {
+        if(keyCode == KeyEvent.VK_ESCAPE && standalone) {
             System.exit(0);
         } else if(keyCode == KeyEvent.VK_SPACE && gameState != GameState.Playing) {
             restart();
+        } else if(keyCode == KeyEvent.VK_G && gameState != GameState.Playing && ghost != null) {
+            ghostMode = !ghostMode;
         } else if(gameState == GameState.Playing) {
             char currentChar = (char)keyCode;
             if(currentChar >= 'A' && currentChar <= 'Z') {
@@ -147,20 +305,36 @@ public class GamePanel extends JPanel implements ActionListener {
     }
 
     /**
-     * Draws all the visual elements of the game into the panel.
+     * Draws all the visual elements of the game into the panel. They are drawn at the logical
+     * size and then scaled to fit the panel.
      *
      * @param g Reference to the Graphics object for rendering.
      */
     public void paint(Graphics g) {
-        super.paint(g);
+        scaledRenderer.render(g, getGraphicsConfiguration(), getWidth(), getHeight(), this::paintLogical);
+    }
+
+    /**
+     * Draws all the visual elements of the game using the logical PANEL_WIDTH x PANEL_HEIGHT coordinates.
+     *
+     * @param g Reference to the Graphics object for rendering.
+     */
+    private void paintLogical(Graphics2D g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
         drawBackgroundPanels(g);
         g.setFont(font);
         if(gameState == GameState.Playing) {
+            if(ghostMode) {
+                ghost.paint(g, PANEL_WIDTH/2, PANEL_HEIGHT/2+50, 40, PANEL_HEIGHT-100);
+            }
             drawCurrentWord(g);
         } else if(gameState == GameState.GameOver) {
             drawEndMessage(g);
+            drawGhostOption(g);
         } else {
             drawStartMessage(g);
+            drawGhostOption(g);
         }
         drawTime(g);
         drawScore(g);
@@ -169,6 +343,15 @@ public class GamePanel extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Gets the lookahead preparing this panel's upcoming words, which tracks the hand over metrics.
+     *
+     * @return The word lookahead.
+     */
+    public WordLookahead getWordLookahead() {
+        return wordDatabase.getLookahead();
+    }
+
     /**
      * Restarts the game by resetting the score to 0 and starting
      * with a new word.
@@ -179,6 +362,12 @@ public class GamePanel extends JPanel implements ActionListener {
         scoreString = scorePrefixString + "0";
         wrongString = wrongPrefixString + "0";
         lastCharacterWrong = false;
+        roundRecording = new RoundRecording();
+        roundStartTime = System.nanoTime();
+        wordsShown = 0;
+        if(ghost != null) {
+            ghost.reset();
+        }
         nextWord();
         gameState = GameState.Playing;
         timeRemaining.reset();
@@ -186,8 +375,9 @@ public class GamePanel extends JPanel implements ActionListener {
 
     /**
      * Triggered when the timer goes off. Updates elements on a fixed time interval.
-     * Specifically by updating the time remaining when the game is playing, and
-     * updating the animation of fading text elements.
+     * Specifically by updating the time remaining and the ghost when the game is playing,
+     * letting the word lookahead prepare more words, and updating the animation of fading
+     * text elements.
      *
      * @param e Reference to the event information.
      */
@@ -195,22 +385,49 @@ public class GamePanel extends JPanel implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         if(gameState == GameState.Playing) {
             timeRemaining.update(TIME_INTERVAL);
+            if(ghostMode) {
+                ghost.update((int)((System.nanoTime() - roundStartTime) / 1000000));
+            }
             if (timeRemaining.isTriggered()) {
                 gameState = GameState.GameOver;
+                RoundRecording finishedRound = roundRecording;
+                roundWriter.execute(() -> finishedRound.appendToFile(roundsFile));
+                updateBestRound();
             }
         }
+        wordDatabase.updateLookahead();
         updateFadingText(TIME_INTERVAL);
         repaint();
     }
 
+    /**
+     * Saves the round that just finished as the best round if it beat the previous best,
+     * and uses it as the ghost for following rounds. The file is written on the round writer.
+     */
+    private void updateBestRound() {
+        if(ghost != null && totalScore <= bestScore) {
+            return;
+        }
+        bestScore = totalScore;
+        RoundRecording bestRound = roundRecording;
+        roundWriter.execute(() -> bestRound.saveToFile(bestRoundFile));
+        ghost = new GhostPlayer(roundRecording);
+    }
+
     /**
      * Gets a new random word from the database and prepares for
-     * detecting entry by the player.
+     * detecting entry by the player. When racing the ghost the
+     * ghost's words are used in the same order until they run out.
      */
     private void nextWord() {
         currentLetterIndex = 0;
         totalWrongLettersForWord = 0;
-        currentWord = wordDatabase.getRandomWord().toUpperCase(Locale.ROOT);
+        String ghostWord = ghostMode ? ghost.getWord(wordsShown) : null;
+        currentWord = ghostWord != null ? ghostWord.toUpperCase(Locale.ROOT) : wordDatabase.getNextWord();
+        wordsShown++;
+        if(roundRecording != null) {
+            roundRecording.startWord(currentWord);
+        }
     }
 
     /**
@@ -222,6 +439,7 @@ public class GamePanel extends JPanel implements ActionListener {
      * @param currentCharacter Character that was pressed.
      */
     private void testCharacterOnWord(char currentCharacter) {
+        roundRecording.addKeystroke((int)((System.nanoTime() - roundStartTime) / 1000000), currentCharacter);
         if (currentCharacter == currentWord.charAt(currentLetterIndex)) {
             currentLetterIndex++;
             lastCharacterWrong = false;
@@ -280,16 +498,7 @@ public class GamePanel extends JPanel implements ActionListener {
      * @param g Reference to the Graphics object for rendering.
      */
     private void drawCurrentWord(Graphics g) {
-        g.setFont(font);
-        g.setColor(new Color(25, 106, 25));
-        String completed = currentWord.substring(0,currentLetterIndex);
-        String inComplete = currentWord.substring(currentLetterIndex);
-        int completedWordWidth = g.getFontMetrics().stringWidth(completed);
-        int inCompleteWordWidth = g.getFontMetrics().stringWidth(inComplete);
-        int totalWidth = completedWordWidth + inCompleteWordWidth;
-        g.drawString(completed, PANEL_WIDTH/2 - totalWidth/2, PANEL_HEIGHT/2);
-        g.setColor(lastCharacterWrong ? Color.RED : Color.BLACK);
-        g.drawString(inComplete, PANEL_WIDTH/2 - totalWidth/2 + completedWordWidth, PANEL_HEIGHT/2);
+        textLayoutCache.drawWord(g, currentWord, currentLetterIndex, lastCharacterWrong, PANEL_WIDTH/2, PANEL_HEIGHT/2);
     }
 
     /**
@@ -312,7 +521,7 @@ public class GamePanel extends JPanel implements ActionListener {
      * @param g Reference to Graphics object for rendering.
      */
     private void drawScore(Graphics g) {
-        g.setFont(new Font("Arial", Font.BOLD, 30));
+        g.setFont(scoreFont);
         g.setColor(Color.BLACK);
         g.drawString(scoreString, 40, PANEL_HEIGHT-60);
         int wrongWidth = g.getFontMetrics().stringWidth(wrongString);
@@ -325,10 +534,7 @@ public class GamePanel extends JPanel implements ActionListener {
      * @param g Reference to the Graphics object for rendering.
      */
     private void drawStartMessage(Graphics g) {
-        g.setColor(Color.BLACK);
-        g.setFont(font);
-        int strWidth = g.getFontMetrics().stringWidth("Press SPACE to Start!");
-        g.drawString("Press SPACE to Start!", PANEL_WIDTH/2 - strWidth/2, PANEL_HEIGHT/2);
+        textLayoutCache.drawText(g, "Press SPACE to Start!", Color.BLACK, PANEL_WIDTH/2, PANEL_HEIGHT/2);
     }
 
     /**
@@ -337,12 +543,24 @@ public class GamePanel extends JPanel implements ActionListener {
      * @param g Reference to the Graphics object for rendering.
      */
     private void drawEndMessage(Graphics g) {
+        textLayoutCache.drawText(g, "Game Over!", Color.BLACK, PANEL_WIDTH/2, PANEL_HEIGHT/2);
+        textLayoutCache.drawText(g, "Press SPACE to Restart!", Color.BLACK, PANEL_WIDTH/2, PANEL_HEIGHT/2+40);
+    }
+
+    /**
+     * Draws the option to toggle the ghost when a best round has been recorded.
+     *
+     * @param g Reference to the Graphics object for rendering.
+     */
+    private void drawGhostOption(Graphics g) {
+        if(ghost == null) {
+            return;
+        }
         g.setColor(Color.BLACK);
-        g.setFont(font);
-        int strWidth = g.getFontMetrics().stringWidth("Game Over!");
-        g.drawString("Game Over!", PANEL_WIDTH/2 - strWidth/2, PANEL_HEIGHT/2);
-        strWidth = g.getFontMetrics().stringWidth("Press SPACE to Restart!");
-        g.drawString("Press SPACE to Restart!", PANEL_WIDTH/2 - strWidth/2, PANEL_HEIGHT/2+40);
+        g.setFont(optionFont);
+        String optionText = "Press G to race best (" + bestScore + "): " + (ghostMode ? "ON" : "OFF");
+        int strWidth = g.getFontMetrics().stringWidth(optionText);
+        g.drawString(optionText, PANEL_WIDTH/2 - strWidth/2, PANEL_HEIGHT/2+80);
     }
 
     /**
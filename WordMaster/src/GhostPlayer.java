@@ -0,0 +1,169 @@
+import java.awt.*;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * GhostPlayer class:
+ * Plays back a recorded round alongside the live game so the player can race against it.
+ * The recording is stepped through with a cursor so each update only looks at the keystrokes
+ * that happened since the last update. Each keystroke is scored with the same rules as GamePanel
+ * to track the ghost's progress on its current word and its total score.
+ */
+public class GhostPlayer {
+    /**
+     * Font used for the ghost's word and score.
+     */
+    private static final Font font = new Font("Arial", Font.BOLD, 24);
+    /**
+     * Colour used for letters the ghost has already entered.
+     */
+    private static final Color completedColour = new Color(25, 106, 25, 140);
+    /**
+     * Colour used for letters the ghost has not entered yet.
+     */
+    private static final Color pendingColour = new Color(0, 0, 0, 110);
+
+    /**
+     * Cached layouts of the ghost's word in each state it is drawn in.
+     */
+    private final TextLayoutCache wordLayoutCache;
+    /**
+     * The recorded round being played back.
+     */
+    private final RoundRecording recording;
+    /**
+     * Cursor to the next keystroke in the recording that has not been played back yet.
+     */
+    private RoundRecording.Cursor cursor;
+    /**
+     * Index of the word the ghost is currently entering.
+     */
+    private int wordIndex;
+    /**
+     * Index of the next letter in the current word the ghost needs to enter.
+     */
+    private int letterIndex;
+    /**
+     * The number of wrong letters the ghost has entered for the current word.
+     */
+    private int wrongLettersForWord;
+    /**
+     * The ghost's total score so far.
+     */
+    private int score;
+    /**
+     * Text showing the ghost's score. Only rebuilt when the score changes.
+     */
+    private String scoreString;
+
+    /**
+     * Prepares the ghost to play back the recording from the start.
+     *
+     * @param recording The recorded round to play back.
+     */
+    public GhostPlayer(RoundRecording recording) {
+        this.recording = recording;
+        wordLayoutCache = new TextLayoutCache(32, completedColour, pendingColour, pendingColour);
+        wordLayoutCache.setFont(font);
+        reset();
+    }
+
+    /**
+     * Moves the playback back to the start of the round.
+     */
+    public void reset() {
+        cursor = recording.cursor();
+        wordIndex = 0;
+        letterIndex = 0;
+        wrongLettersForWord = 0;
+        score = 0;
+        scoreString = "Ghost: 0";
+    }
+
+    /**
+     * Plays back every keystroke up to the elapsed time.
+     *
+     * @param elapsedTime Time in ms since the start of the round.
+     */
+    public void update(int elapsedTime) {
+        while(cursor.hasNext() && cursor.peekTime() <= elapsedTime) {
+            applyKey(cursor.next());
+        }
+    }
+
+    /**
+     * Gets the word that was shown at the index during the recorded round so the live
+     * game can be given the same words as the ghost.
+     *
+     * @param index Index of the word in the order shown.
+     * @return The word, or null if the recorded round did not reach that word.
+     */
+    public String getWord(int index) {
+        return index < recording.getWordCount() ? recording.getWord(index) : null;
+    }
+
+    /**
+     * Gets the ghost's total score so far.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Draws the ghost's current word with its progress, and its score.
+     *
+     * @param g Reference to the Graphics object for rendering.
+     * @param wordX Centre x position of the word.
+     * @param wordY Baseline y position of the word.
+     * @param scoreX Left x position of the score.
+     * @param scoreY Baseline y position of the score.
+     */
+    public void paint(Graphics g, int wordX, int wordY, int scoreX, int scoreY) {
+        String word = getWord(wordIndex);
+        if(word != null) {
+            wordLayoutCache.drawWord(g, word, letterIndex, false, wordX, wordY);
+        }
+        g.setFont(font);
+        g.setColor(pendingColour);
+        g.drawString(scoreString, scoreX, scoreY);
+    }
+
+    /**
+     * Calculates the score the recorded round finished with.
+     *
+     * @param recording The recorded round.
+     * @return The final score.
+     */
+    public static int calculateFinalScore(RoundRecording recording) {
+        GhostPlayer ghost = new GhostPlayer(recording);
+        ghost.update(Integer.MAX_VALUE);
+        return ghost.getScore();
+    }
+
+    /**
+     * Applies a single keystroke using the same rules as testCharacterOnWord in GamePanel.
+     *
+     * @param key The letter that was pressed.
+     */
+    private void applyKey(char key) {
+        String word = getWord(wordIndex);
+        if(word == null) {
+            return;
+        }
+        if(key == word.charAt(letterIndex)) {
+            letterIndex++;
+            if(letterIndex == word.length()) {
+                score += Math.max(word.length() - wrongLettersForWord, 1);
+                scoreString = "Ghost: " + score;
+                wordIndex++;
+                letterIndex = 0;
+                wrongLettersForWord = 0;
+            }
+        } else {
+            wrongLettersForWord++;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * RoundRecording class:
+ * Records a single round of the game as the sequence of words that were shown and every
+ * letter key that was pressed. Key times are stored as the delta in ms from the previous
+ * key using a variable length encoding so most keys only take two or three bytes to store.
+ * Whether each key was correct is not stored because it can be worked out again by
+ * replaying the keys against the words.
+ * Each recording is written as a record starting with RECORD_MAGIC and the length of the
+ * record. If a round was cut off part way through being written, for example because the
+ * game exited during the write, readBatch() skips ahead to the next record instead of
+ * losing every round after it. Every count is checked when reading, so damaged data
+ * is reported as an IOException.
+ */
+public class RoundRecording {
+    /**
+     * Value written at the start of every record so the next record can be found after a damaged one.
+     */
+    private static final int RECORD_MAGIC = 0x574D5244;
+    /**
+     * Largest record length accepted when reading. Real rounds are only a few KB.
+     */
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    /**
+     * Words in the order they were shown during the round.
+     */
+    private List<String> words;
+    /**
+     * Index of the first keystroke for each word. Grows with words.
+     */
+    private int[] wordKeyStart;
+    /**
+     * The letter pressed for each keystroke.
+     */
+    private byte[] keys;
+    /**
+     * Delta encoded time of each keystroke in ms since the previous keystroke.
+     */
+    private byte[] timeline;
+    /**
+     * Number of keystrokes stored in keys.
+     */
+    private int keyCount;
+    /**
+     * Number of bytes used in timeline.
+     */
+    private int timelineLength;
+    /**
+     * Time of the most recently added keystroke in ms since the start of the round.
+     */
+    private int lastKeyTime;
+
+    /**
+     * Creates an empty recording ready to have words and keystrokes added.
+     */
+    public RoundRecording() {
+        words = new ArrayList<>();
+        wordKeyStart = new int[16];
+        keys = new byte[64];
+        timeline = new byte[128];
+        keyCount = 0;
+        timelineLength = 0;
+        lastKeyTime = 0;
+    }
+
+    /**
+     * Records that a new word has been shown. Any following keystrokes are for this word.
+     *
+     * @param word The word that is now being entered.
+     */
+    public void startWord(String word) {
+        if(words.size() == wordKeyStart.length) {
+            wordKeyStart = grow(wordKeyStart);
+        }
+        wordKeyStart[words.size()] = keyCount;
+        words.add(word);
+    }
+
+    /**
+     * Records a letter key being pressed for the current word.
+     *
+     * @param time Time in ms since the start of the round.
+     * @param key The letter that was pressed.
+     */
+    public void addKeystroke(int time, char key) {
+        if(keyCount == keys.length) {
+            keys = grow(keys, keys.length * 2);
+        }
+        if(timelineLength + 5 > timeline.length) {
+            timeline = grow(timeline, Math.max(timeline.length * 2, timelineLength + 5));
+        }
+        keys[keyCount++] = (byte) key;
+        int delta = Math.max(0, time - lastKeyTime);
+        lastKeyTime += delta;
+        while((delta & ~0x7F) != 0) {
+            timeline[timelineLength++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        timeline[timelineLength++] = (byte) delta;
+    }
+
+    /**
+     * Gets the number of words that were shown during the round.
+     *
+     * @return Number of words.
+     */
+    public int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * Gets a word that was shown during the round.
+     *
+     * @param wordIndex Index of the word in the order shown.
+     * @return The word.
+     */
+    public String getWord(int wordIndex) {
+        return words.get(wordIndex);
+    }
+
+    /**
+     * Gets the index of the first keystroke entered for a word.
+     *
+     * @param wordIndex Index of the word in the order shown.
+     * @return Index of the first keystroke for the word.
+     */
+    public int getWordKeyStart(int wordIndex) {
+        return wordKeyStart[wordIndex];
+    }
+
+    /**
+     * Gets the total number of keystrokes recorded.
+     *
+     * @return Number of keystrokes.
+     */
+    public int getKeystrokeCount() {
+        return keyCount;
+    }
+
+    /**
+     * Gets the letter that was pressed for a keystroke.
+     *
+     * @param keyIndex Index of the keystroke.
+     * @return The letter pressed.
+     */
+    public char getKey(int keyIndex) {
+        return (char) keys[keyIndex];
+    }
+
+    /**
+     * Decodes the timeline into the time of every keystroke in ms since the start of the round.
+     *
+     * @return Array with the time of each keystroke.
+     */
+    public int[] decodeKeyTimes() {
+        int[] times = new int[keyCount];
+        int time = 0;
+        int offset = 0;
+        for(int i = 0; i < keyCount; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = timeline[offset++];
+                delta |= (current & 0x7F) << shift;
+                shift += 7;
+            } while((current & 0x80) != 0);
+            time += delta;
+            times[i] = time;
+        }
+        return times;
+    }
+
+    /**
+     * Appends this recording to the end of the specified file.
+     * If any error occurs it will print an error and the recording is not saved.
+     *
+     * @param fileName File to append the recording to.
+     */
+    public void appendToFile(String fileName) {
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName, true)))) {
+            write(out);
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not save round to " + fileName);
+        }
+    }
+
+    /**
+     * Replaces the contents of the specified file with only this recording.
+     * If any error occurs it will print an error and the recording is not saved.
+     *
+     * @param fileName File to save the recording to.
+     */
+    public void saveToFile(String fileName) {
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            write(out);
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not save round to " + fileName);
+        }
+    }
+
+    /**
+     * Writes this recording to the stream as a single record.
+     *
+     * @param out Stream to write to.
+     * @throws IOException If the stream could not be written to.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64 + keyCount + timelineLength);
+        DataOutputStream recordOut = new DataOutputStream(record);
+        recordOut.writeInt(words.size());
+        for(int i = 0; i < words.size(); i++) {
+            recordOut.writeUTF(words.get(i));
+            recordOut.writeInt(wordKeyStart[i]);
+        }
+        recordOut.writeInt(keyCount);
+        recordOut.write(keys, 0, keyCount);
+        recordOut.writeInt(timelineLength);
+        recordOut.write(timeline, 0, timelineLength);
+
+        out.writeInt(RECORD_MAGIC);
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+    /**
+     * Reads a single record from the stream.
+     *
+     * @param in Stream to read from.
+     * @return The recording that was read.
+     * @throws IOException If the stream ends early, could not be read, or the record is damaged.
+     */
+    public static RoundRecording read(DataInputStream in) throws IOException {
+        if(in.readInt() != RECORD_MAGIC) {
+            throw new IOException("Not the start of a round");
+        }
+        return readRecord(in);
+    }
+
+    /**
+     * Reads up to maxCount recordings from the stream. Used to read large files in batches.
+     * A damaged record is skipped by searching for the next RECORD_MAGIC after its start.
+     *
+     * @param in Stream to read from. Must support mark() and reset().
+     * @param maxCount Maximum number of recordings to read.
+     * @return The recordings read. Empty once the end of the stream is reached.
+     * @throws IOException If the stream could not be read.
+     */
+    public static List<RoundRecording> readBatch(DataInputStream in, int maxCount) throws IOException {
+        List<RoundRecording> batch = new ArrayList<>();
+        while(batch.size() < maxCount && skipToNextRecord(in)) {
+            in.mark(MAX_RECORD_LENGTH + 4);
+            try {
+                batch.add(readRecord(in));
+            } catch(IOException e) {
+                // Search again from just after the magic number of the damaged record
+                System.out.println("ERROR: Skipped a damaged round: " + e.getMessage());
+                in.reset();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Reads bytes until RECORD_MAGIC has been read. Normally the magic number is the next
+     * four bytes, but after a damaged record any bytes before the next record are skipped.
+     *
+     * @param in Stream to read from.
+     * @return True if a magic number was read, or false if the end of the stream was reached.
+     * @throws IOException If the stream could not be read.
+     */
+    private static boolean skipToNextRecord(DataInputStream in) throws IOException {
+        int window = 0;
+        int bytesRead = 0;
+        int current;
+        while((current = in.read()) != -1) {
+            window = (window << 8) | current;
+            bytesRead++;
+            if(bytesRead >= 4 && window == RECORD_MAGIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the length and contents of a record after its magic number, checking
+     * every count against the length of the record.
+     *
+     * @param in Stream to read from.
+     * @return The recording that was read.
+     * @throws IOException If the stream ends early, could not be read, or the record is damaged.
+     */
+    private static RoundRecording readRecord(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 12 || length > MAX_RECORD_LENGTH) {
+            throw new IOException("Invalid round length " + length);
+        }
+        byte[] record = new byte[length];
+        in.readFully(record);
+        DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+
+        RoundRecording recording = new RoundRecording();
+        // Each word takes at least 7 bytes: the string length, one letter, and its key start
+        int wordCount = recordIn.readInt();
+        checkCount(wordCount, recordIn.available() / 7, "word count");
+        recording.wordKeyStart = new int[Math.max(wordCount, 1)];
+        for(int i = 0; i < wordCount; i++) {
+            String word = recordIn.readUTF();
+            if(word.isEmpty() || !isUpperCaseLetters(word)) {
+                throw new IOException("Invalid word in round");
+            }
+            recording.words.add(word);
+            recording.wordKeyStart[i] = recordIn.readInt();
+        }
+        recording.keyCount = recordIn.readInt();
+        checkCount(recording.keyCount, recordIn.available(), "key count");
+        recording.keys = new byte[Math.max(recording.keyCount, 1)];
+        recordIn.readFully(recording.keys, 0, recording.keyCount);
+        recording.timelineLength = recordIn.readInt();
+        checkCount(recording.timelineLength, recordIn.available(), "timeline length");
+        if(recording.timelineLength != recordIn.available()) {
+            throw new IOException("Unexpected data at the end of the round");
+        }
+        recording.timeline = new byte[Math.max(recording.timelineLength, 1)];
+        recordIn.readFully(recording.timeline, 0, recording.timelineLength);
+        recording.validate();
+
+        int[] times = recording.decodeKeyTimes();
+        recording.lastKeyTime = times.length > 0 ? times[times.length - 1] : 0;
+        return recording;
+    }
+
+    /**
+     * Checks that a count read from a record is between 0 and the maximum that can fit.
+     *
+     * @param count The count that was read.
+     * @param max Largest valid count.
+     * @param name Name of the count for the error message.
+     * @throws IOException If the count is not valid.
+     */
+    private static void checkCount(int count, int max, String name) throws IOException {
+        if(count < 0 || count > max) {
+            throw new IOException("Invalid " + name + " " + count);
+        }
+    }
+
+    /**
+     * Tests if every character is a letter from A to Z, the only keys GamePanel records.
+     *
+     * @param text Text to test.
+     * @return True if every character is an upper case letter.
+     */
+    private static boolean isUpperCaseLetters(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            if(text.charAt(i) < 'A' || text.charAt(i) > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the keys, word key starts, and timeline that were read agree with each other.
+     *
+     * @throws IOException If any of them are not valid.
+     */
+    private void validate() throws IOException {
+        int previousStart = 0;
+        for(int i = 0; i < words.size(); i++) {
+            if(wordKeyStart[i] < previousStart || wordKeyStart[i] > keyCount) {
+                throw new IOException("Invalid key start for word " + i);
+            }
+            previousStart = wordKeyStart[i];
+        }
+        if(!isUpperCaseLetters(new String(keys, 0, keyCount, StandardCharsets.ISO_8859_1))) {
+            throw new IOException("Invalid key in round");
+        }
+        // Every delta is at most 5 bytes and ends with a byte that has the top bit clear
+        int deltaCount = 0;
+        int deltaLength = 0;
+        for(int i = 0; i < timelineLength; i++) {
+            deltaLength++;
+            if(deltaLength > 5) {
+                throw new IOException("Invalid key time");
+            }
+            if((timeline[i] & 0x80) == 0) {
+                deltaCount++;
+                deltaLength = 0;
+            }
+        }
+        if(deltaCount != keyCount || deltaLength != 0) {
+            throw new IOException("Key times do not match key count");
+        }
+    }
+
+    /**
+     * Loads every recording from a file.
+     * If any error occurs it will print an error and return the recordings read so far.
+     *
+     * @param fileName File to load recordings from.
+     * @return All the recordings in the file.
+     */
+    public static List<RoundRecording> loadAllFromFile(String fileName) {
+        List<RoundRecording> recordings = new ArrayList<>();
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            List<RoundRecording> batch;
+            while(!(batch = readBatch(in, 1024)).isEmpty()) {
+                recordings.addAll(batch);
+            }
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not read rounds from " + fileName);
+        }
+        return recordings;
+    }
+
+    /**
+     * Loads the first recording from a file.
+     *
+     * @param fileName File to load the recording from.
+     * @return The recording, or null if the file does not exist or could not be read.
+     */
+    public static RoundRecording loadFromFile(String fileName) {
+        if(!new File(fileName).isFile()) {
+            return null;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            return read(in);
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not read round from " + fileName);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a cursor that steps through the keystrokes in order from the start of the round.
+     *
+     * @return A new cursor positioned before the first keystroke.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Steps through the keystrokes in order by decoding a single delta from the timeline at a
+     * time, so moving to the next keystroke is O(1) and no array of times needs to be decoded.
+     */
+    public class Cursor {
+        /**
+         * Index of the next keystroke.
+         */
+        private int keyIndex;
+        /**
+         * Byte offset in the timeline of the delta after the next keystroke.
+         */
+        private int timelineOffset;
+        /**
+         * Time of the next keystroke in ms since the start of the round.
+         */
+        private int nextTime;
+
+        /**
+         * Positions the cursor before the first keystroke.
+         */
+        private Cursor() {
+            keyIndex = 0;
+            timelineOffset = 0;
+            nextTime = 0;
+            if(keyCount > 0) {
+                nextTime = readDelta();
+            }
+        }
+
+        /**
+         * Tests if there are any keystrokes left.
+         *
+         * @return True if next() can be called.
+         */
+        public boolean hasNext() {
+            return keyIndex < keyCount;
+        }
+
+        /**
+         * Gets the time of the next keystroke without moving the cursor.
+         *
+         * @return Time in ms since the start of the round.
+         */
+        public int peekTime() {
+            return nextTime;
+        }
+
+        /**
+         * Moves past the next keystroke and returns the key that was pressed.
+         *
+         * @return The letter pressed for the keystroke.
+         */
+        public char next() {
+            char key = (char) keys[keyIndex++];
+            if(keyIndex < keyCount) {
+                nextTime += readDelta();
+            }
+            return key;
+        }
+
+        /**
+         * Gets the index of the keystroke that next() will return.
+         *
+         * @return Index of the next keystroke.
+         */
+        public int getKeyIndex() {
+            return keyIndex;
+        }
+
+        /**
+         * Reads one variable length delta from the timeline.
+         *
+         * @return The delta in ms.
+         */
+        private int readDelta() {
+            int delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = timeline[timelineOffset++];
+                delta |= (current & 0x7F) << shift;
+                shift += 7;
+            } while((current & 0x80) != 0);
+            return delta;
+        }
+    }
+
+    /**
+     * Creates a copy of the array with double the length.
+     *
+     * @param array Array to copy.
+     * @return The larger copy.
+     */
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Creates a copy of the array with a new length.
+     *
+     * @param array Array to copy.
+     * @param length Length of the new array.
+     * @return The larger copy.
+     */
+    private static byte[] grow(byte[] array, int length) {
+        byte[] grown = new byte[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
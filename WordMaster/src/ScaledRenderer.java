@@ -0,0 +1,180 @@
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * ScaledRenderer class:
+ * Lets a panel be drawn using fixed logical coordinates at any size. Everything is drawn into a
+ * cached back buffer at the logical resolution (multiplied by a render scale for sharper text on
+ * large displays), and the back buffer is then scaled to fit the panel with a single blit. The back
+ * buffer is a VolatileImage so both the drawing and the scaled blit are hardware accelerated.
+ * When the panel's graphics are not accelerated a scaled software blit costs far more than the
+ * drawing itself, so the frame is drawn straight to the panel through the scale transform instead.
+ * The layout (scale, letterboxing, and back buffer size) is only worked out again when the panel
+ * size changes, not every frame.
+ */
+public class ScaledRenderer {
+    /**
+     * Width of the coordinate space everything is drawn in.
+     */
+    private final int logicalWidth;
+    /**
+     * Height of the coordinate space everything is drawn in.
+     */
+    private final int logicalHeight;
+    /**
+     * Largest multiple of the logical resolution the back buffer is allowed to be.
+     */
+    private final double maxRenderScale;
+    /**
+     * Colour used to fill the bars around the scaled image when the aspect ratio does not match.
+     */
+    private final Color borderColour;
+
+    /**
+     * Panel width the current layout was calculated for.
+     */
+    private int layoutWidth;
+    /**
+     * Panel height the current layout was calculated for.
+     */
+    private int layoutHeight;
+    /**
+     * Scale applied when drawing into the back buffer.
+     */
+    private double renderScale;
+    /**
+     * Area of the panel the back buffer is scaled into.
+     */
+    private Rectangle target;
+    /**
+     * Cached back buffer everything is drawn into before being scaled to the panel.
+     */
+    private VolatileImage backBuffer;
+
+    /**
+     * Creates a renderer for the specified logical size. No layout is calculated until the first render.
+     *
+     * @param logicalWidth Width of the coordinate space everything is drawn in.
+     * @param logicalHeight Height of the coordinate space everything is drawn in.
+     * @param maxRenderScale Largest multiple of the logical resolution to use for the back buffer.
+     * @param borderColour Colour to fill the bars around the scaled image with.
+     */
+    public ScaledRenderer(int logicalWidth, int logicalHeight, double maxRenderScale, Color borderColour) {
+        this.logicalWidth = logicalWidth;
+        this.logicalHeight = logicalHeight;
+        this.maxRenderScale = maxRenderScale;
+        this.borderColour = borderColour;
+        layoutWidth = -1;
+        layoutHeight = -1;
+    }
+
+    /**
+     * Draws a frame using the painter in logical coordinates, scaled to fill the panel
+     * while keeping the aspect ratio.
+     *
+     * @param g Reference to the Graphics object of the panel.
+     * @param configuration Graphics configuration of the panel, or null if it is not displayable.
+     * @param width Current width of the panel.
+     * @param height Current height of the panel.
+     * @param painter Draws the frame using logical coordinates.
+     */
+    public void render(Graphics g, GraphicsConfiguration configuration, int width, int height,
+                       Consumer<Graphics2D> painter) {
+        if(width != layoutWidth || height != layoutHeight) {
+            updateLayout(width, height);
+        }
+
+        Graphics2D g2 = (Graphics2D) g;
+        drawBorders(g2, width, height);
+        if(configuration == null || !configuration.getImageCapabilities().isAccelerated()) {
+            Graphics2D directGraphics = (Graphics2D) g2.create(target.x, target.y, target.width, target.height);
+            directGraphics.scale(getScale(), getScale());
+            painter.accept(directGraphics);
+            directGraphics.dispose();
+            return;
+        }
+
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        do {
+            validateBackBuffer(configuration);
+            Graphics2D bufferGraphics = backBuffer.createGraphics();
+            bufferGraphics.scale(renderScale, renderScale);
+            painter.accept(bufferGraphics);
+            bufferGraphics.dispose();
+            g2.drawImage(backBuffer, target.x, target.y, target.width, target.height, null);
+        } while(backBuffer.contentsLost());
+    }
+
+    /**
+     * Gets the scale from logical coordinates to panel coordinates.
+     *
+     * @return The current scale, or 0 before the first render.
+     */
+    public double getScale() {
+        return target == null ? 0 : (double) target.width / logicalWidth;
+    }
+
+    /**
+     * Works out the scale and position of the image for the new panel size,
+     * and discards the back buffer if it needs to be a different size.
+     *
+     * @param width New width of the panel.
+     * @param height New height of the panel.
+     */
+    private void updateLayout(int width, int height) {
+        layoutWidth = width;
+        layoutHeight = height;
+        double scale = Math.max(Math.min((double) width / logicalWidth, (double) height / logicalHeight), 0.01);
+        int targetWidth = (int) Math.round(logicalWidth * scale);
+        int targetHeight = (int) Math.round(logicalHeight * scale);
+        target = new Rectangle((width - targetWidth) / 2, (height - targetHeight) / 2, targetWidth, targetHeight);
+
+        double newRenderScale = Math.max(1, Math.min(scale, maxRenderScale));
+        if(newRenderScale != renderScale) {
+            renderScale = newRenderScale;
+            if(backBuffer != null) {
+                backBuffer.flush();
+                backBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Makes sure the back buffer exists and is usable with the current graphics configuration.
+     *
+     * @param configuration Graphics configuration of the panel.
+     */
+    private void validateBackBuffer(GraphicsConfiguration configuration) {
+        if(backBuffer != null) {
+            if(backBuffer.validate(configuration) != VolatileImage.IMAGE_INCOMPATIBLE) {
+                return;
+            }
+            backBuffer.flush();
+        }
+        backBuffer = configuration.createCompatibleVolatileImage((int) Math.ceil(logicalWidth * renderScale),
+                (int) Math.ceil(logicalHeight * renderScale));
+    }
+
+    /**
+     * Fills the areas of the panel that the scaled image does not cover.
+     *
+     * @param g Reference to the Graphics object of the panel.
+     * @param width Width of the panel.
+     * @param height Height of the panel.
+     */
+    private void drawBorders(Graphics2D g, int width, int height) {
+        g.setColor(borderColour);
+        if(target.x > 0) {
+            g.fillRect(0, 0, target.x, height);
+            g.fillRect(target.x + target.width, 0, width - target.x - target.width, height);
+        }
+        if(target.y > 0) {
+            g.fillRect(0, 0, width, target.y);
+            g.fillRect(0, target.y + target.height, width, height - target.y - target.height);
+        }
+    }
+}
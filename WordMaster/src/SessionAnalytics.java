@@ -0,0 +1,415 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * SessionAnalytics class:
+ * Offline batch tool that reads recorded rounds and works out statistics about how difficult
+ * each word is. Rounds are read in batches and each batch is processed with a parallel stream.
+ * Every word is given a dense integer id so the per-word totals can be kept in primitive arrays
+ * indexed by id instead of boxed maps. The results are written to a compact statistics file
+ * that WordDatabase can load to weight word selection.
+ *
+ * Usage: java SessionAnalytics [roundsFile] [statisticsFile]
+ */
+public class SessionAnalytics {
+    /**
+     * Identifies the statistics file format.
+     */
+    public static final int STATISTICS_VERSION = 1;
+    /**
+     * Number of rounds to read before processing them in parallel.
+     */
+    private static final int BATCH_SIZE = 4096;
+    /**
+     * Number of the most confused key pairs to write to the statistics file.
+     */
+    private static final int CONFUSABLE_PAIRS_TO_WRITE = 20;
+
+    /**
+     * Maps each word to its dense id. Shared between all the worker threads.
+     */
+    private final Map<String, Integer> wordIds;
+    /**
+     * Words in id order so the id can be turned back into a word.
+     */
+    private final List<String> wordsById;
+    /**
+     * Next id to give out to a new word.
+     */
+    private final AtomicInteger nextWordId;
+    /**
+     * Totals combined from every processed batch.
+     */
+    private Statistics totals;
+
+    /**
+     * Entry point for running the analytics over a rounds file.
+     *
+     * @param args Optional rounds file and statistics file names.
+     */
+    public static void main(String[] args) {
+        String roundsFile = args.length > 0 ? args[0] : "Rounds.dat";
+        String statisticsFile = args.length > 1 ? args[1] : "WordStats.dat";
+        SessionAnalytics analytics = new SessionAnalytics();
+        long startTime = System.nanoTime();
+        int rounds = analytics.processFile(roundsFile);
+        long processTime = System.nanoTime() - startTime;
+        analytics.writeStatistics(statisticsFile);
+        System.out.printf("Processed %d rounds in %d ms%n", rounds, processTime / 1000000);
+        analytics.printSummary();
+    }
+
+    /**
+     * Creates an empty analytics engine with no rounds processed.
+     */
+    public SessionAnalytics() {
+        wordIds = new ConcurrentHashMap<>();
+        wordsById = new ArrayList<>();
+        nextWordId = new AtomicInteger();
+        totals = new Statistics();
+    }
+
+    /**
+     * Reads every round from the file in batches and adds them to the totals.
+     * If any error occurs it will print an error and keep the totals from the rounds already read.
+     *
+     * @param roundsFile File of rounds written by RoundRecording.
+     * @return Number of rounds processed.
+     */
+    public int processFile(String roundsFile) {
+        int roundCount = 0;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(roundsFile)))) {
+            List<RoundRecording> batch;
+            while(!(batch = RoundRecording.readBatch(in, BATCH_SIZE)).isEmpty()) {
+                processRounds(batch);
+                roundCount += batch.size();
+            }
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not read rounds from " + roundsFile);
+        }
+        return roundCount;
+    }
+
+    /**
+     * Processes the rounds in parallel and adds the result to the totals.
+     *
+     * @param rounds Rounds to process.
+     */
+    public void processRounds(List<RoundRecording> rounds) {
+        Statistics batchStatistics = rounds.parallelStream()
+                .collect(Statistics::new, this::addRound, Statistics::merge);
+        totals.merge(batchStatistics);
+    }
+
+    /**
+     * Writes the per-word and per-letter statistics to a file that WordDatabase can load.
+     * If any error occurs it will print an error and the file may be incomplete.
+     *
+     * @param statisticsFile File to write to.
+     */
+    public void writeStatistics(String statisticsFile) {
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(statisticsFile)))) {
+            out.writeInt(STATISTICS_VERSION);
+
+            // Per word statistics, only words that have been completed at least once
+            int wordCount = 0;
+            for(int id = 0; id < nextWordId.get(); id++) {
+                if(totals.getCompletions(id) > 0) {
+                    wordCount++;
+                }
+            }
+            out.writeInt(wordCount);
+            for(int id = 0; id < nextWordId.get(); id++) {
+                long completions = totals.getCompletions(id);
+                if(completions > 0) {
+                    out.writeUTF(getWord(id));
+                    out.writeInt((int) completions);
+                    out.writeFloat((float) totals.getCompletionTime(id) / completions);
+                    out.writeFloat((float) totals.getWrongLetters(id) / completions);
+                }
+            }
+
+            // Per letter error rates
+            for(int letter = 0; letter < 26; letter++) {
+                out.writeFloat(totals.getLetterErrorRate(letter));
+            }
+
+            // The most confused pairs of keys
+            int[] pairs = totals.getTopConfusablePairs(CONFUSABLE_PAIRS_TO_WRITE);
+            out.writeInt(pairs.length);
+            for(int pair : pairs) {
+                out.writeByte('A' + pair / 26);
+                out.writeByte('A' + pair % 26);
+                out.writeInt((int) totals.confusions[pair]);
+            }
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not write statistics to " + statisticsFile);
+        }
+    }
+
+    /**
+     * Prints the error rate for every letter and the most confused keys.
+     */
+    public void printSummary() {
+        System.out.println("Words with statistics: " + nextWordId.get());
+        System.out.print("Letter error rates:");
+        for(int letter = 0; letter < 26; letter++) {
+            System.out.printf(" %c=%.3f", (char) ('A' + letter), totals.getLetterErrorRate(letter));
+        }
+        System.out.println();
+        System.out.print("Most confused keys (expected->pressed):");
+        for(int pair : totals.getTopConfusablePairs(5)) {
+            System.out.printf(" %c->%c (%d)", (char) ('A' + pair / 26), (char) ('A' + pair % 26), totals.confusions[pair]);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Replays the keystrokes of a round against its words and adds the results to the statistics.
+     * A word's completion time is from when the previous word was completed (or the round started)
+     * up to the keystroke that completed it. The last word of a round is usually not completed.
+     *
+     * @param statistics Statistics to add the round to.
+     * @param round Round to add.
+     */
+    private void addRound(Statistics statistics, RoundRecording round) {
+        int[] keyTimes = round.decodeKeyTimes();
+        int wordStartTime = 0;
+        for(int wordIndex = 0; wordIndex < round.getWordCount(); wordIndex++) {
+            String word = round.getWord(wordIndex).toUpperCase(Locale.ROOT);
+            int id = getWordId(word);
+            int keyStart = round.getWordKeyStart(wordIndex);
+            int keyEnd = wordIndex + 1 < round.getWordCount()
+                    ? round.getWordKeyStart(wordIndex + 1) : round.getKeystrokeCount();
+
+            int letterIndex = 0;
+            int wrong = 0;
+            for(int key = keyStart; key < keyEnd && letterIndex < word.length(); key++) {
+                char expected = word.charAt(letterIndex);
+                char pressed = round.getKey(key);
+                statistics.addKeystroke(expected, pressed);
+                if(expected == pressed) {
+                    letterIndex++;
+                    if(letterIndex == word.length()) {
+                        statistics.addCompletion(id, keyTimes[key] - wordStartTime, wrong);
+                        wordStartTime = keyTimes[key];
+                    }
+                } else {
+                    wrong++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the id for a word, giving it a new id if it has not been seen before.
+     *
+     * @param word Word to get the id for.
+     * @return Dense id for the word.
+     */
+    private int getWordId(String word) {
+        Integer id = wordIds.get(word);
+        if(id != null) {
+            return id;
+        }
+        return wordIds.computeIfAbsent(word, key -> {
+            synchronized(wordsById) {
+                wordsById.add(key);
+                return nextWordId.getAndIncrement();
+            }
+        });
+    }
+
+    /**
+     * Gets the word for an id.
+     *
+     * @param id Id of the word.
+     * @return The word.
+     */
+    private String getWord(int id) {
+        synchronized(wordsById) {
+            return wordsById.get(id);
+        }
+    }
+
+    /**
+     * Totals for a set of rounds kept in primitive arrays. Per word totals are indexed by word id
+     * and grow as new ids are seen. Each parallel worker fills its own instance, and the instances
+     * are then merged together.
+     */
+    private static class Statistics {
+        /**
+         * Number of times each word was completed, indexed by word id.
+         */
+        private long[] completions = new long[256];
+        /**
+         * Total time in ms spent completing each word, indexed by word id.
+         */
+        private long[] completionTime = new long[256];
+        /**
+         * Total wrong letters entered while completing each word, indexed by word id.
+         */
+        private long[] wrongLetters = new long[256];
+        /**
+         * Number of keystrokes where each letter was the expected letter.
+         */
+        private final long[] letterExpected = new long[26];
+        /**
+         * Number of keystrokes where each letter was expected but a different key was pressed.
+         */
+        private final long[] letterWrong = new long[26];
+        /**
+         * Counts of each wrong key pressed for each expected letter, indexed by expected * 26 + pressed.
+         */
+        private final long[] confusions = new long[26 * 26];
+
+        /**
+         * Adds a single keystroke to the per letter totals.
+         *
+         * @param expected The letter that should have been pressed.
+         * @param pressed The letter that was pressed.
+         */
+        private void addKeystroke(char expected, char pressed) {
+            int expectedIndex = expected - 'A';
+            if(expectedIndex < 0 || expectedIndex >= 26) {
+                return;
+            }
+            letterExpected[expectedIndex]++;
+            if(expected != pressed) {
+                letterWrong[expectedIndex]++;
+                int pressedIndex = pressed - 'A';
+                if(pressedIndex >= 0 && pressedIndex < 26) {
+                    confusions[expectedIndex * 26 + pressedIndex]++;
+                }
+            }
+        }
+
+        /**
+         * Adds a completed word to the per word totals.
+         *
+         * @param id Id of the word.
+         * @param time Time in ms taken to complete the word.
+         * @param wrong Number of wrong letters entered for the word.
+         */
+        private void addCompletion(int id, int time, int wrong) {
+            ensureCapacity(id + 1);
+            completions[id]++;
+            completionTime[id] += time;
+            wrongLetters[id] += wrong;
+        }
+
+        /**
+         * Adds all of the totals from another Statistics into this one.
+         *
+         * @param other Statistics to add.
+         */
+        private void merge(Statistics other) {
+            ensureCapacity(other.completions.length);
+            for(int id = 0; id < other.completions.length; id++) {
+                completions[id] += other.completions[id];
+                completionTime[id] += other.completionTime[id];
+                wrongLetters[id] += other.wrongLetters[id];
+            }
+            for(int letter = 0; letter < 26; letter++) {
+                letterExpected[letter] += other.letterExpected[letter];
+                letterWrong[letter] += other.letterWrong[letter];
+            }
+            for(int pair = 0; pair < confusions.length; pair++) {
+                confusions[pair] += other.confusions[pair];
+            }
+        }
+
+        /**
+         * Gets the number of times a word was completed.
+         *
+         * @param id Id of the word.
+         * @return Number of completions.
+         */
+        private long getCompletions(int id) {
+            return id < completions.length ? completions[id] : 0;
+        }
+
+        /**
+         * Gets the total time spent completing a word.
+         *
+         * @param id Id of the word.
+         * @return Total time in ms.
+         */
+        private long getCompletionTime(int id) {
+            return id < completionTime.length ? completionTime[id] : 0;
+        }
+
+        /**
+         * Gets the total wrong letters entered while completing a word.
+         *
+         * @param id Id of the word.
+         * @return Total wrong letters.
+         */
+        private long getWrongLetters(int id) {
+            return id < wrongLetters.length ? wrongLetters[id] : 0;
+        }
+
+        /**
+         * Gets the fraction of keystrokes that were wrong when the letter was expected.
+         *
+         * @param letter Letter index from 0 (A) to 25 (Z).
+         * @return Error rate from 0 to 1.
+         */
+        private float getLetterErrorRate(int letter) {
+            return letterExpected[letter] == 0 ? 0 : (float) letterWrong[letter] / letterExpected[letter];
+        }
+
+        /**
+         * Finds the key pairs that were confused the most.
+         *
+         * @param count Maximum number of pairs to return.
+         * @return Pair indexes (expected * 26 + pressed) from most to least confused.
+         */
+        private int[] getTopConfusablePairs(int count) {
+            List<Integer> pairs = new ArrayList<>();
+            for(int pair = 0; pair < confusions.length; pair++) {
+                if(confusions[pair] > 0) {
+                    pairs.add(pair);
+                }
+            }
+            pairs.sort((a, b) -> Long.compare(confusions[b], confusions[a]));
+            int resultSize = Math.min(count, pairs.size());
+            int[] result = new int[resultSize];
+            for(int i = 0; i < resultSize; i++) {
+                result[i] = pairs.get(i);
+            }
+            return result;
+        }
+
+        /**
+         * Grows the per word arrays so they can hold at least the required number of ids.
+         *
+         * @param required Number of ids that must fit.
+         */
+        private void ensureCapacity(int required) {
+            if(required <= completions.length) {
+                return;
+            }
+            int length = Math.max(required, completions.length * 2);
+            completions = Arrays.copyOf(completions, length);
+            completionTime = Arrays.copyOf(completionTime, length);
+            wrongLetters = Arrays.copyOf(wrongLetters, length);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * TextLayoutCache class:
+ * Keeps text that has already been split and measured so it does not need to be laid out
+ * again every repaint. Words are split into the completed letters and the remaining letters,
+ * so each entry is keyed by the word, the letter index, and whether the remaining letters are
+ * shown as wrong. Plain text is keyed by the text and colour. The least recently used entries
+ * are evicted once the cache is full, and everything is cleared if the font changes.
+ * Text is measured with the FontRenderContext of the graphics it is drawn to, because glyph
+ * advances change with the scale the text is drawn at. If the context changes, such as when
+ * the panel is resized and the scale changes, every cached entry is discarded.
+ * Only the layout is cached and each part is still drawn with drawString, which uses Java2D's
+ * own glyph cache. Pre-rendering text into images or a glyph atlas was dropped after measuring:
+ * it was slower than drawString on the software pipeline, and the game draws its text scaled.
+ */
+public class TextLayoutCache {
+    /**
+     * Maximum number of entries to keep.
+     */
+    private final int capacity;
+    /**
+     * Colour for letters of a word that have been entered.
+     */
+    private final Color completedColour;
+    /**
+     * Colour for letters of a word that still need to be entered.
+     */
+    private final Color pendingColour;
+    /**
+     * Colour for letters of a word that still need to be entered after a wrong letter.
+     */
+    private final Color wrongColour;
+    /**
+     * Cached text stored in least recently used order.
+     */
+    private final Map<String, CachedText> layouts;
+    /**
+     * Font that all the cached entries were laid out with.
+     */
+    private Font font;
+    /**
+     * Context that all the cached entries were measured with, including the scale they are drawn at.
+     */
+    private FontRenderContext fontRenderContext;
+    /**
+     * The key used for the most recent word, so a word that has not changed
+     * since the last repaint is drawn without looking it up again.
+     */
+    private String lastWord;
+    /**
+     * The letter index used for the most recent word.
+     */
+    private int lastLetterIndex;
+    /**
+     * The wrong state used for the most recent word.
+     */
+    private boolean lastWrong;
+    /**
+     * The cached entry used for the most recent word.
+     */
+    private CachedText lastWordText;
+
+    /**
+     * Creates an empty cache that will draw words with the specified colours.
+     *
+     * @param capacity Maximum number of entries to keep.
+     * @param completedColour Colour for letters of a word that have been entered.
+     * @param pendingColour Colour for letters of a word that still need to be entered.
+     * @param wrongColour Colour for letters that still need to be entered after a wrong letter.
+     */
+    public TextLayoutCache(int capacity, Color completedColour, Color pendingColour, Color wrongColour) {
+        this.capacity = capacity;
+        this.completedColour = completedColour;
+        this.pendingColour = pendingColour;
+        this.wrongColour = wrongColour;
+        layouts = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedText> eldest) {
+                return size() > TextLayoutCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Sets the font to render text with. If the font is different to the
+     * current font every cached entry is discarded.
+     *
+     * @param font Font to render text with.
+     */
+    public void setFont(Font font) {
+        if(font.equals(this.font)) {
+            return;
+        }
+        this.font = font;
+        clear();
+    }
+
+    /**
+     * Discards every cached entry.
+     */
+    public void clear() {
+        layouts.clear();
+        lastWord = null;
+        lastWordText = null;
+    }
+
+    /**
+     * Draws a word centred at x with the letters before letterIndex in the completed colour
+     * and the rest in either the pending or wrong colour.
+     *
+     * @param g Reference to the Graphics object for rendering.
+     * @param word The word to draw.
+     * @param letterIndex Index of the first letter that has not been entered.
+     * @param wrong True if the remaining letters should use the wrong colour.
+     * @param centreX Centre x position of the word.
+     * @param baselineY Baseline y position of the word.
+     */
+    public void drawWord(Graphics g, String word, int letterIndex, boolean wrong, int centreX, int baselineY) {
+        validateFontRenderContext(g);
+        if(lastWordText == null || letterIndex != lastLetterIndex || wrong != lastWrong || !word.equals(lastWord)) {
+            String key = word + '\0' + letterIndex + (wrong ? "W" : "P");
+            CachedText cached = layouts.get(key);
+            if(cached == null) {
+                cached = layoutWord(word, letterIndex, wrong);
+                layouts.put(key, cached);
+            }
+            lastWord = word;
+            lastLetterIndex = letterIndex;
+            lastWrong = wrong;
+            lastWordText = cached;
+        }
+        lastWordText.draw(g, centreX, baselineY);
+    }
+
+    /**
+     * Draws a single line of text centred at x in one colour.
+     *
+     * @param g Reference to the Graphics object for rendering.
+     * @param text The text to draw.
+     * @param colour The colour to draw the text with.
+     * @param centreX Centre x position of the text.
+     * @param baselineY Baseline y position of the text.
+     */
+    public void drawText(Graphics g, String text, Color colour, int centreX, int baselineY) {
+        validateFontRenderContext(g);
+        String key = text + '\0' + colour.getRGB();
+        CachedText cached = layouts.get(key);
+        if(cached == null) {
+            cached = layoutText(new String[] { text }, new Color[] { colour });
+            layouts.put(key, cached);
+        }
+        cached.draw(g, centreX, baselineY);
+    }
+
+    /**
+     * Gets the number of entries currently cached.
+     *
+     * @return Number of cached entries.
+     */
+    public int size() {
+        return layouts.size();
+    }
+
+    /**
+     * Discards every cached entry if the graphics being drawn to measure text differently
+     * to the graphics the entries were measured with.
+     *
+     * @param g Graphics being drawn to.
+     */
+    private void validateFontRenderContext(Graphics g) {
+        FontRenderContext context = ((Graphics2D) g).getFontRenderContext();
+        if(!context.equals(fontRenderContext)) {
+            fontRenderContext = context;
+            clear();
+        }
+    }
+
+    /**
+     * Lays out a word split into the completed and remaining parts.
+     *
+     * @param word The word to lay out.
+     * @param letterIndex Index of the first letter that has not been entered.
+     * @param wrong True if the remaining letters should use the wrong colour.
+     * @return The laid out word.
+     */
+    private CachedText layoutWord(String word, int letterIndex, boolean wrong) {
+        String[] parts = { word.substring(0, letterIndex), word.substring(letterIndex) };
+        Color[] colours = { completedColour, wrong ? wrongColour : pendingColour };
+        return layoutText(parts, colours);
+    }
+
+    /**
+     * Measures each part of the text to place them one after another. The widths are kept
+     * as fractions of a logical pixel so parts line up exactly when the text is scaled up.
+     *
+     * @param parts The parts of text to draw in order.
+     * @param colours The colour for each part.
+     * @return The laid out text.
+     */
+    private CachedText layoutText(String[] parts, Color[] colours) {
+        float[] offsets = new float[parts.length];
+        float width = 0;
+        for(int i = 0; i < parts.length; i++) {
+            offsets[i] = width;
+            width += (float) font.getStringBounds(parts[i], fontRenderContext).getWidth();
+        }
+        return new CachedText(font, parts, colours, offsets, width);
+    }
+
+    /**
+     * Text split into coloured parts with the measurements needed to position it.
+     */
+    private static class CachedText {
+        /**
+         * Font the text is drawn with.
+         */
+        private final Font font;
+        /**
+         * The parts of text drawn one after another.
+         */
+        private final String[] parts;
+        /**
+         * The colour for each part.
+         */
+        private final Color[] colours;
+        /**
+         * The x offset of each part from the left of the text.
+         */
+        private final float[] offsets;
+        /**
+         * Width of the text in logical pixels.
+         */
+        private final float width;
+
+        /**
+         * Stores the laid out text and its measurements.
+         *
+         * @param font Font the text is drawn with.
+         * @param parts The parts of text drawn one after another.
+         * @param colours The colour for each part.
+         * @param offsets The x offset of each part from the left of the text.
+         * @param width Width of the text in logical pixels.
+         */
+        private CachedText(Font font, String[] parts, Color[] colours, float[] offsets, float width) {
+            this.font = font;
+            this.parts = parts;
+            this.colours = colours;
+            this.offsets = offsets;
+            this.width = width;
+        }
+
+        /**
+         * Draws each part of the text in its colour with the text centred at x and its baseline at y.
+         *
+         * @param g Reference to the Graphics object for rendering.
+         * @param centreX Centre x position of the text.
+         * @param baselineY Baseline y position of the text.
+         */
+        private void draw(Graphics g, int centreX, int baselineY) {
+            Graphics2D g2 = (Graphics2D) g;
+            float left = centreX - width/2;
+            g2.setFont(font);
+            for(int i = 0; i < parts.length; i++) {
+                g2.setColor(colours[i]);
+                g2.drawString(parts[i], left + offsets[i], baselineY);
+            }
+        }
+    }
+}
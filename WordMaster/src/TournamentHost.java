@@ -0,0 +1,208 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * TournamentHost class:
+ * Runs many game sessions in a single JVM for events. Every session is a GamePanel with its own
+ * ActionTimer and its own seeded WordDatabase, but they all share one immutable word list and are
+ * all updated by a single Swing Timer instead of each panel starting its own. The panels are shown
+ * in a grid in one frame. Click a panel to give it keyboard focus. Each player records its rounds
+ * and best round to its own files, so every session races its own ghost. When the host is stopped
+ * or the frame is closed, the word lookahead hand over metrics of every session are printed.
+ *
+ * Usage: java TournamentHost [playerCount] [seed]
+ */
+public class TournamentHost implements ActionListener {
+    /**
+     * Entry point for hosting a tournament.
+     *
+     * @param args Optional number of players (default 32) and base seed for word selection.
+     */
+    public static void main(String[] args) {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.currentTimeMillis();
+        SwingUtilities.invokeLater(() -> new TournamentHost(playerCount, seed).show());
+    }
+
+    /**
+     * All the sessions being hosted.
+     */
+    private final List<GamePanel> sessions;
+    /**
+     * Single timer that updates every session.
+     */
+    private final Timer tickScheduler;
+
+    /**
+     * Creates all the sessions sharing one word list, and the scheduler that updates them.
+     * Each session selects words with the seed plus its player index, and saves its
+     * rounds to files prefixed with its player number, such as Player1_BestRound.dat.
+     *
+     * @param playerCount Number of sessions to create.
+     * @param seed Base seed for the word selection in each session.
+     */
+    public TournamentHost(int playerCount, long seed) {
+        WordDatabase sharedDatabase = GamePanel.loadWordDatabase();
+        sessions = new ArrayList<>();
+        for(int i = 0; i < playerCount; i++) {
+            sessions.add(new GamePanel(new WordDatabase(sharedDatabase, seed + i), false, "Player" + (i + 1) + "_"));
+        }
+        tickScheduler = new Timer(GamePanel.TIME_INTERVAL, this);
+    }
+
+    /**
+     * Creates the frame with every session in a grid and starts the scheduler.
+     */
+    public void show() {
+        JFrame frame = new JFrame("Word Master Tournament");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                stop();
+            }
+        });
+        int columns = (int) Math.ceil(Math.sqrt(sessions.size()));
+        JPanel grid = new JPanel(new GridLayout(0, columns, 2, 2));
+        Dimension sessionSize = new Dimension(1600 / columns, 1600 / columns);
+        for(GamePanel session : sessions) {
+            session.setPreferredSize(sessionSize);
+            session.setFocusable(true);
+            SessionInput input = new SessionInput(session);
+            session.addKeyListener(input);
+            session.addMouseListener(input);
+            grid.add(session);
+        }
+        frame.getContentPane().add(grid);
+        frame.pack();
+        frame.setVisible(true);
+        sessions.get(0).requestFocusInWindow();
+        tickScheduler.start();
+    }
+
+    /**
+     * Stops updating all of the sessions and prints the word lookahead metrics.
+     */
+    public void stop() {
+        tickScheduler.stop();
+        printLookaheadReport();
+    }
+
+    /**
+     * Prints the total word hand over metrics across every session, and the
+     * session with the slowest single hand over.
+     */
+    public void printLookaheadReport() {
+        long handOvers = 0;
+        long misses = 0;
+        long totalHandOverTime = 0;
+        long maxHandOverTime = 0;
+        int slowestSession = 0;
+        for(int i = 0; i < sessions.size(); i++) {
+            WordLookahead lookahead = sessions.get(i).getWordLookahead();
+            handOvers += lookahead.getHandOvers();
+            misses += lookahead.getMisses();
+            totalHandOverTime += lookahead.getTotalHandOverTime();
+            if(lookahead.getMaxHandOverTime() > maxHandOverTime) {
+                maxHandOverTime = lookahead.getMaxHandOverTime();
+                slowestSession = i;
+            }
+        }
+        long averageHandOverTime = handOvers == 0 ? 0 : totalHandOverTime / handOvers;
+        System.out.printf("Word lookahead across %d sessions: %d hand overs, %d misses, avg %d ns, max %d ns%n",
+                sessions.size(), handOvers, misses, averageHandOverTime, maxHandOverTime);
+        if(!sessions.isEmpty()) {
+            System.out.println("Slowest session: Player" + (slowestSession + 1) + " "
+                    + sessions.get(slowestSession).getWordLookahead());
+        }
+    }
+
+    /**
+     * Gets the sessions being hosted.
+     *
+     * @return The list of sessions.
+     */
+    public List<GamePanel> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Triggered by the scheduler every GamePanel.TIME_INTERVAL ms. Updates every session in turn.
+     * Repaints requested by each session are merged by Swing into a single paint of the frame.
+     *
+     * @param e Reference to the event information.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        for(GamePanel session : sessions) {
+            session.actionPerformed(e);
+        }
+    }
+
+    /**
+     * Passes key presses to a single session, and gives it keyboard focus when it is clicked.
+     */
+    private static class SessionInput extends MouseAdapter implements KeyListener {
+        /**
+         * The session that receives the input.
+         */
+        private final GamePanel session;
+
+        /**
+         * Creates the input handler for a session.
+         *
+         * @param session The session that receives the input.
+         */
+        private SessionInput(GamePanel session) {
+            this.session = session;
+        }
+
+        /**
+         * Gives the session keyboard focus.
+         *
+         * @param e Not used.
+         */
+        @Override
+        public void mousePressed(MouseEvent e) {
+            session.requestFocusInWindow();
+        }
+
+        /**
+         * Called when the key is pressed down. Passes the key press on to the session.
+         *
+         * @param e Information about what key was pressed.
+         */
+        @Override
+        public void keyPressed(KeyEvent e) {
+            session.handleInput(e.getKeyCode());
+        }
+
+        /**
+         * Not used.
+         *
+         * @param e Not used.
+         */
+        @Override
+        public void keyTyped(KeyEvent e) {}
+        /**
+         * Not used.
+         *
+         * @param e Not used.
+         */
+        @Override
+        public void keyReleased(KeyEvent e) {}
+    }
+}
@@ -1,8 +1,19 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * Word Master
@@ -20,6 +31,15 @@ public class WordDatabase {
      * Shared Random reference to use for randomising the word selection.
      */
     private Random rand;
+    /**
+     * Running total of the selection weights for each word in data, or null when
+     * every word has the same chance of being selected.
+     */
+    private double[] cumulativeWeights;
+    /**
+     * Prepares upcoming words in the background, or null if words are selected when they are needed.
+     */
+    private WordLookahead lookahead;
 
     /**
      * Initialises the object by loading from the specified data file.
@@ -27,9 +47,45 @@ public class WordDatabase {
      * @param databaseFile File to load the word list from.
      */
     public WordDatabase(String databaseFile) {
+        this(databaseFile, false);
+    }
+
+    /**
+     * Initialises the object by loading from the specified data file. If databaseFile is a
+     * directory every file inside it is loaded in parallel with a CorpusLoader instead.
+     * When compressed is true the words are sorted, deduplicated, and stored in a
+     * FrontCodedWordList to reduce memory use for very large word lists.
+     *
+     * @param databaseFile File or directory to load the word list from.
+     * @param compressed True to store the words front-coded instead of in an ArrayList.
+     */
+    public WordDatabase(String databaseFile, boolean compressed) {
         data = new ArrayList<>();
         rand = new Random();
-        loadDataFromFile(databaseFile);
+        if(new File(databaseFile).isDirectory()) {
+            data = new CorpusLoader().loadDirectory(databaseFile);
+        } else {
+            loadDataFromFile(databaseFile);
+        }
+        if(compressed) {
+            data = new FrontCodedWordList(data);
+        } else {
+            data = Collections.unmodifiableList(data);
+        }
+    }
+
+    /**
+     * Creates a database that shares the words and selection weights of another database
+     * but selects words with its own seeded Random. The word list is never modified after
+     * loading, so any number of databases can share it.
+     *
+     * @param sharedDatabase Database to share the words and weights with.
+     * @param seed Seed for the Random used to select words.
+     */
+    public WordDatabase(WordDatabase sharedDatabase, long seed) {
+        data = sharedDatabase.data;
+        cumulativeWeights = sharedDatabase.cumulativeWeights;
+        rand = new Random(seed);
     }
 
     /**
@@ -38,11 +94,132 @@ public class WordDatabase {
      * @return A random word from the database.
      */
     public String getRandomWord() {
-        return data.get(rand.nextInt(data.size()));
+        if(cumulativeWeights == null) {
+            return data.get(rand.nextInt(data.size()));
+        }
+        double target = rand.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        // An exact match on a cumulative weight is the end of that word's range, so it belongs to the next word
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return data.get(Math.min(index, data.size() - 1));
+    }
+
+    /**
+     * Starts preparing the next words on a background worker so getNextWord() only has to
+     * hand over a word that is already selected and normalised.
+     *
+     * @param depth Number of words to keep prepared ahead of time.
+     */
+    public void enableLookahead(int depth) {
+        lookahead = new WordLookahead(this, depth);
+    }
+
+    /**
+     * Lets the lookahead prepare more words in the background if it is running low.
+     * Called on the regular game update so this never happens on the keystroke that completes a word.
+     */
+    public void updateLookahead() {
+        if(lookahead != null) {
+            lookahead.refillIfNeeded();
+        }
+    }
+
+    /**
+     * Gets the lookahead preparing upcoming words, which also tracks the hand over metrics.
+     *
+     * @return The lookahead, or null if enableLookahead() has not been called.
+     */
+    public WordLookahead getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Gets the next word to be entered in upper case. Uses the lookahead if it is enabled,
+     * otherwise selects a random word straight away.
+     *
+     * @return The next word in upper case.
+     */
+    public String getNextWord() {
+        if(lookahead != null) {
+            return lookahead.nextWord();
+        }
+        return getRandomWord().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Loads a statistics file written by SessionAnalytics and uses it to weight the word
+     * selection. Each word is weighted by 1 + the average number of wrong letters entered
+     * when completing it, so words that players find difficult are shown more often.
+     * Words without statistics keep a weight of 1. If the file does not exist nothing changes.
+     *
+     * @param statisticsFile File to load the statistics from.
+     * @return True if the statistics were loaded.
+     */
+    public boolean loadStatistics(String statisticsFile) {
+        if(!new File(statisticsFile).isFile()) {
+            return false;
+        }
+        Map<String, Float> averageWrong = new HashMap<>();
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(statisticsFile)))) {
+            if(in.readInt() != SessionAnalytics.STATISTICS_VERSION) {
+                System.out.println("ERROR: Unknown statistics version in " + statisticsFile);
+                return false;
+            }
+            int wordCount = in.readInt();
+            for(int i = 0; i < wordCount; i++) {
+                String word = in.readUTF();
+                in.readInt(); // completions
+                in.readFloat(); // average completion time
+                averageWrong.put(word, in.readFloat());
+            }
+        } catch(IOException e) {
+            System.out.println("ERROR: Could not read statistics from " + statisticsFile);
+            return false;
+        }
+
+        double[] weights = new double[data.size()];
+        double total = 0;
+        for(int i = 0; i < data.size(); i++) {
+            Float wrong = averageWrong.get(data.get(i).toUpperCase(Locale.ROOT));
+            total += 1 + (wrong == null ? 0 : wrong);
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+        return true;
+    }
+
+    /**
+     * Tests if the word exists in the database. This is a binary search when the
+     * database is compressed, otherwise a linear scan.
+     *
+     * @param word Word to search for.
+     * @return True if the word is in the database.
+     */
+    public boolean containsWord(String word) {
+        return data.contains(word);
+    }
+
+    /**
+     * Tests if any word in the database starts with the prefix.
+     *
+     * @param prefix Prefix to search for.
+     * @return True if at least one word begins with the prefix.
+     */
+    public boolean hasWordWithPrefix(String prefix) {
+        if(data instanceof FrontCodedWordList) {
+            return ((FrontCodedWordList) data).hasPrefix(prefix);
+        }
+        for(String word : data) {
+            if(word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Reads the specified file into a list of words for the database.
+     * Reads the specified file into a list of words for the database. Words are checked with
+     * the same rules as CorpusLoader, so words that can not be typed and repeated words are skipped.
      * If any error occurs it will abort and just put in the word "FILEREADERROR".
      *
      * @param fileName File name to load a word list from.
@@ -62,10 +239,11 @@ public class WordDatabase {
         }
 
         // Read every word from the database
+        Set<String> addedWords = new HashSet<>();
         while(fileScanner.hasNextLine()) {
-            String currentWord = fileScanner.nextLine();
-            if(currentWord.length() > 0) {
-                data.add(currentWord);
+            String currentWord = fileScanner.nextLine().trim();
+            if(CorpusLoader.isTypeable(currentWord) && addedWords.add(currentWord.toLowerCase(Locale.ROOT))) {
+                data.add(currentWord.toLowerCase(Locale.ROOT));
             }
         }
     }
@@ -0,0 +1,260 @@
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Word Master
+ * Author: Peter Mitchell (2021)
+ *
+ * WordLookahead class:
+ * Prepares the next few words from a WordDatabase on a background worker so that selecting
+ * and normalising a word never happens on the keystroke that completed the previous word.
+ * Prepared words are kept in a single producer, single consumer ring buffer. The worker only
+ * writes the tail and the game only writes the head, so handing over a word is just reading a
+ * slot and moving the head with no locks. Waking the worker costs more than the hand over itself,
+ * so it is not done during the hand over. Instead refillIfNeeded() is called on the game's regular
+ * update to wake the worker once the queue is half empty. Words are only ever selected by whichever
+ * thread holds the producing flag, and are always added at the tail, so a seeded database produces
+ * the same sequence of words no matter which thread selected them. If the queue is empty when a
+ * word is needed, the game takes the producing flag and prepares the next word into the queue
+ * itself, which is counted as a miss. It only has to wait if the worker is part way through
+ * adding a word to this lookahead, and then parks until the worker has added it. One worker
+ * thread is shared by every lookahead so hosting many sessions does not create a thread for each.
+ */
+public class WordLookahead {
+    /**
+     * Background worker shared by all lookaheads to prepare words.
+     */
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WordLookahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Time in ns to park for while waiting for the worker to finish adding a word.
+     */
+    private static final long WAIT_TIME = 1000;
+
+    /**
+     * Database the words are selected from.
+     */
+    private final WordDatabase database;
+    /**
+     * Ring buffer of prepared words.
+     */
+    private final AtomicReferenceArray<String> slots;
+    /**
+     * Index of the next word to hand over. Only changed by the game.
+     */
+    private final AtomicLong head;
+    /**
+     * Index of the next slot to prepare a word into. Only changed by the worker.
+     */
+    private final AtomicLong tail;
+    /**
+     * True while a refill is waiting to run on the worker, so only one is queued at a time.
+     */
+    private final AtomicBoolean refillScheduled;
+    /**
+     * True while a thread is selecting words and adding them at the tail.
+     */
+    private final AtomicBoolean producing;
+
+    /**
+     * Number of words handed over.
+     */
+    private long handOvers;
+    /**
+     * Number of words that were not ready and had to be prepared during the hand over.
+     */
+    private long misses;
+    /**
+     * Total time spent handing over words in ns.
+     */
+    private long totalHandOverTime;
+    /**
+     * Longest time spent handing over a single word in ns.
+     */
+    private long maxHandOverTime;
+
+    /**
+     * Creates the lookahead and fills every slot before returning, so the first words
+     * are ready straight away. Later words are prepared on the worker.
+     *
+     * @param database Database to select words from.
+     * @param depth Number of words to keep prepared ahead of time.
+     */
+    public WordLookahead(WordDatabase database, int depth) {
+        this.database = database;
+        slots = new AtomicReferenceArray<>(Math.max(depth, 1));
+        head = new AtomicLong();
+        tail = new AtomicLong();
+        refillScheduled = new AtomicBoolean();
+        producing = new AtomicBoolean();
+        refill();
+    }
+
+    /**
+     * Hands over the next prepared word. If no word is ready, the word is prepared into the
+     * queue on this thread unless the worker is already preparing one. Should only be called
+     * from one thread.
+     *
+     * @return The next word in upper case.
+     */
+    public String nextWord() {
+        long startTime = System.nanoTime();
+        long currentHead = head.get();
+        if(currentHead >= tail.get()) {
+            misses++;
+            while(currentHead >= tail.get()) {
+                if(producing.compareAndSet(false, true)) {
+                    try {
+                        if(currentHead >= tail.get()) {
+                            addWord(tail.get());
+                        }
+                    } finally {
+                        producing.set(false);
+                    }
+                } else {
+                    // The worker is adding a word to this queue, so let it run
+                    LockSupport.parkNanos(WAIT_TIME);
+                }
+            }
+        }
+        String word = slots.get((int) (currentHead % slots.length()));
+        head.set(currentHead + 1);
+
+        long handOverTime = System.nanoTime() - startTime;
+        handOvers++;
+        totalHandOverTime += handOverTime;
+        maxHandOverTime = Math.max(maxHandOverTime, handOverTime);
+        return word;
+    }
+
+    /**
+     * Wakes the worker to prepare more words if the queue is half empty or less.
+     * Should be called regularly from the same thread that calls nextWord().
+     */
+    public void refillIfNeeded() {
+        if(tail.get() - head.get() <= slots.length() / 2) {
+            scheduleRefill();
+        }
+    }
+
+    /**
+     * Gets the number of words that can be prepared ahead of time.
+     *
+     * @return The lookahead depth.
+     */
+    public int getDepth() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the number of words handed over.
+     *
+     * @return Number of hand overs.
+     */
+    public long getHandOvers() {
+        return handOvers;
+    }
+
+    /**
+     * Gets the number of words that were not ready when they were needed.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the total time spent handing over words.
+     *
+     * @return Total hand over time in ns.
+     */
+    public long getTotalHandOverTime() {
+        return totalHandOverTime;
+    }
+
+    /**
+     * Gets the average time taken to hand over a word.
+     *
+     * @return Average hand over time in ns.
+     */
+    public long getAverageHandOverTime() {
+        return handOvers == 0 ? 0 : totalHandOverTime / handOvers;
+    }
+
+    /**
+     * Gets the longest time taken to hand over a word.
+     *
+     * @return Longest hand over time in ns.
+     */
+    public long getMaxHandOverTime() {
+        return maxHandOverTime;
+    }
+
+    /**
+     * Gets a summary of the hand over metrics.
+     *
+     * @return The depth, number of hand overs and misses, and average and max hand over time.
+     */
+    @Override
+    public String toString() {
+        return "Word lookahead (depth " + getDepth() + "): " + handOvers + " hand overs, " + misses
+                + " misses, avg " + getAverageHandOverTime() + " ns, max " + maxHandOverTime + " ns";
+    }
+
+    /**
+     * Selects and normalises a single word.
+     *
+     * @return A random word from the database in upper case.
+     */
+    private String prepareWord() {
+        return database.getRandomWord().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Queues a refill on the worker unless one is already waiting.
+     */
+    private void scheduleRefill() {
+        if(refillScheduled.compareAndSet(false, true)) {
+            worker.execute(this::refill);
+        }
+    }
+
+    /**
+     * Prepares words until every slot is full. Runs on the worker, except for the
+     * first fill in the constructor. Does nothing if the game is preparing a word itself.
+     */
+    private void refill() {
+        refillScheduled.set(false);
+        // The flag is taken for one word at a time so the game never waits for more than one word
+        while(tail.get() - head.get() < slots.length() && producing.compareAndSet(false, true)) {
+            try {
+                if(tail.get() - head.get() < slots.length()) {
+                    addWord(tail.get());
+                }
+            } finally {
+                producing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Prepares a word into the slot at the tail and moves the tail past it.
+     * Must only be called while holding the producing flag.
+     *
+     * @param currentTail The current value of tail.
+     */
+    private void addWord(long currentTail) {
+        slots.set((int) (currentTail % slots.length()), prepareWord());
+        tail.set(currentTail + 1);
+    }
+}